@@ -0,0 +1,80 @@
+package dev.kyriji.bmcmanager.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+import dev.kyriji.bmcmanager.utils.InstanceCodec;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * InstanceCodec against the reflective Gson it replaced, for the INSTANCE_MODIFIED payload and
+ * the legacy players field. The gsonNew* cases build a Gson per call, as updateInstance used
+ * to. Run with the gc profiler (the default for ./gradlew jmh) to see allocation per operation.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstanceCodecBenchmark {
+	@Param({"0", "20", "200"})
+	public int players;
+
+	private final Gson gson = new Gson();
+	private final Type playerMapType = new TypeToken<Map<UUID, String>>(){}.getType();
+
+	private MinecraftInstance instance;
+	private String playersJson;
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Map<UUID, String> roster = new HashMap<>();
+		for (int i = 0; i < players; i++) {
+			roster.put(UUID.randomUUID(), "Player" + i);
+		}
+
+		instance = new MinecraftInstance("0b6f3c1e-6a4d-4c8e-9a51-2f0d3e7b9c11", "lobby-7f9c", "lobby-7f9c",
+			"10.0.3.17", "lobby");
+		instance.setState(InstanceState.RUNNING);
+		instance.setPlayers(roster);
+		playersJson = gson.toJson(roster);
+	}
+
+	@Benchmark
+	public String codecEncodeInstance() {
+		return InstanceCodec.toJson(instance);
+	}
+
+	@Benchmark
+	public String gsonEncodeInstance() {
+		return gson.toJson(instance);
+	}
+
+	@Benchmark
+	public String gsonNewEncodeInstance() {
+		return new Gson().toJson(instance);
+	}
+
+	@Benchmark
+	public Map<UUID, String> codecDecodePlayers() {
+		return InstanceCodec.readPlayers(playersJson);
+	}
+
+	@Benchmark
+	public Map<UUID, String> gsonDecodePlayers() {
+		return gson.fromJson(playersJson, playerMapType);
+	}
+
+	@Benchmark
+	public Map<UUID, String> gsonNewDecodePlayers() {
+		return new Gson().fromJson(playersJson, playerMapType);
+	}
+}
@@ -0,0 +1,128 @@
+package dev.kyriji.bmcmanager.benchmarks;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+import dev.kyriji.bigminecraftapi.objects.Instance;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+import dev.kyriji.bmcmanager.controllers.RedisManager;
+import dev.kyriji.bmcmanager.enums.KeyLayout;
+import org.openjdk.jmh.annotations.*;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.resps.ScanResult;
+
+import java.lang.reflect.Type;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading one deployment's instances: the per-deployment index (one SMEMBERS and a pipelined
+ * batch of HMGETs) against the keyspace SCAN it replaced (a TYPE and an HGETALL per match).
+ *
+ * The keys are spread over ten deployments and one of them is read, so the SCAN pays for the
+ * whole keyspace while the index only touches its own deployment.
+ *
+ * Needs a Redis at REDIS_HOST/REDIS_PORT (default localhost:6379). Every instance key on it is
+ * deleted before and after each run - never point this at a live manager's Redis.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class InstanceIndexBenchmark {
+	private static final int DEPLOYMENTS = 10;
+	private static final String DEPLOYMENT = "deployment-0";
+	private static final int WRITE_BATCH = 1000;
+
+	@Param({"1000", "10000", "100000"})
+	public int keys;
+
+	private final Gson gson = new Gson();
+	private final Type playerMapType = new TypeToken<Map<UUID, String>>(){}.getType();
+
+	@Setup(Level.Trial)
+	public void setup() {
+		Map<String, String> env = System.getenv();
+		RedisManager.init(env.getOrDefault("REDIS_HOST", "localhost"), Integer.parseInt(env.getOrDefault("REDIS_PORT", "6379")),
+			List.of(), KeyLayout.LEGACY, false, false, 2);
+		RedisManager.get().clear();
+
+		RedisManager.get().withRedis(redis -> {
+			for (int start = 0; start < keys; start += WRITE_BATCH) {
+				try (AbstractPipeline pipeline = redis.pipelined()) {
+					for (int i = start; i < Math.min(start + WRITE_BATCH, keys); i++) {
+						String deployment = "deployment-" + (i % DEPLOYMENTS);
+						String uid = "uid-" + i;
+						String key = RedisManager.instanceKey(uid, deployment);
+
+						Map<String, String> fields = new HashMap<>();
+						fields.put("uid", uid);
+						fields.put("name", deployment + "-" + i);
+						fields.put("podName", deployment + "-" + i);
+						fields.put("ip", "10.0." + (i / 256 % 256) + "." + (i % 256));
+						fields.put("deployment", deployment);
+						fields.put("state", InstanceState.RUNNING.name());
+						fields.put("playerCount", "0");
+						// Read by the SCAN path, as the manager wrote it then
+						fields.put("players", "{}");
+						pipeline.hset(key, fields);
+						pipeline.sadd(RedisManager.instanceIndexKey(deployment), key);
+					}
+					pipeline.sync();
+				}
+			}
+		});
+	}
+
+	@TearDown(Level.Trial)
+	public void tearDown() {
+		RedisManager.get().clear();
+	}
+
+	@Benchmark
+	public List<Instance> indexAndPipeline() {
+		return RedisManager.get().getInstances(DEPLOYMENT);
+	}
+
+	/**
+	 * RedisManager.scanAndDeserializeInstances as it was before the index.
+	 */
+	@Benchmark
+	public List<Instance> scan() {
+		String pattern = "instance:*:" + DEPLOYMENT;
+		Map<String, Instance> resultMap = new HashMap<>();
+		RedisManager.get().withConnection(jedis -> {
+			String cursor = "0";
+			do {
+				ScanResult<String> scanResult = jedis.scan(cursor, new ScanParams().match(pattern));
+				cursor = scanResult.getCursor();
+
+				for (String key : scanResult.getResult()) {
+					String keyUid = key.split(":").length > 1 ? key.split(":")[1] : key;
+					if (resultMap.containsKey(keyUid)) continue;
+					if (!"hash".equals(jedis.type(key))) continue;
+
+					Map<String, String> hashData = jedis.hgetAll(key);
+					if (hashData == null || hashData.isEmpty()) continue;
+
+					Instance instance;
+					if (hashData.containsKey("players")) {
+						Map<UUID, String> players = gson.fromJson(hashData.get("players"), playerMapType);
+						instance = new MinecraftInstance(hashData.get("uid"), hashData.get("name"), hashData.get("podName"),
+							hashData.get("ip"), hashData.get("deployment"));
+						((MinecraftInstance) instance).setPlayers(players);
+					} else {
+						instance = new Instance(hashData.get("uid"), hashData.get("name"), hashData.get("podName"),
+							hashData.get("ip"), hashData.get("deployment"));
+					}
+					instance.setState(InstanceState.valueOf(hashData.get("state")));
+					resultMap.put(hashData.get("uid"), instance);
+				}
+			} while (!cursor.equals("0"));
+		});
+		return new ArrayList<>(resultMap.values());
+	}
+}
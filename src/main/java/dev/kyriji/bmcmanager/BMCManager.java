@@ -1,13 +1,23 @@
 package dev.kyriji.bmcmanager;
 
 import dev.kyriji.bmcmanager.controller.InformerManager;
+import dev.kyriji.bmcmanager.controller.ReconcileRateLimiter;
 import dev.kyriji.bmcmanager.controller.ReconciliationQueue;
+import dev.kyriji.bmcmanager.controller.ShardCoordinator;
 import dev.kyriji.bmcmanager.controllers.*;
+import dev.kyriji.bmcmanager.enums.EventTransport;
+import dev.kyriji.bmcmanager.enums.KeyLayout;
+import dev.kyriji.bmcmanager.metrics.MetricsServer;
+import dev.kyriji.bmcmanager.metrics.QueueMetrics;
+import dev.kyriji.bmcmanager.metrics.ReconcileMetrics;
 import dev.kyriji.bmcmanager.tasks.*;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.KubernetesClientBuilder;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.UUID;
 
 public class BMCManager {
 	public static GameServerManager gameServerManager;
@@ -21,26 +31,54 @@ public class BMCManager {
 	public static ShutdownTimeoutCheckerTask shutdownTimeoutChecker;
 	public static InstanceAgeCheckerTask instanceAgeChecker;
 	public static InformerManager informerManager;
+	public static ShardCoordinator shardCoordinator;
+	public static MetricsServer metricsServer;
 	public static KubernetesClient kubernetesClient;
 
 	public static void main(String[] args) {
 		System.out.println("=== Starting BMC Manager ===");
 
 		// Initialize Redis
-		RedisManager.init(getRedisHost(), getRedisPort());
+		RedisManager.init(getRedisHost(), getRedisPort(), getRedisClusterNodes(), getRedisKeyLayout(),
+			isShardedPubSubEnabled(), isLegacyPlayersFieldEnabled(), getRedisWriteWindowMs());
+		// Model writes first - they may still queue work on the coalescer
+		Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+			WriteBehindQueue.get().shutdown();
+			RedisManager.get().getWriteCoalescer().shutdown();
+		}, "redis-write-drain"));
+		if (getEventTransport() == EventTransport.STREAMS) {
+			RedisManager.get().enableEventStreams(getStreamMaxLen());
+		}
+		NearCache nearCache = getNearCacheSize() > 0 ? RedisManager.get().enableNearCache(getNearCacheSize()) : null;
 
 		// Initialize Kubernetes client
 		kubernetesClient = new KubernetesClientBuilder().build();
 
+		// Join the other manager replicas before touching shared state
+		shardCoordinator = new ShardCoordinator(kubernetesClient, getNamespace(), getManagerIdentity(), isShardingEnabled());
+		shardCoordinator.start();
+		Runtime.getRuntime().addShutdownHook(new Thread(shardCoordinator::shutdown, "shard-release"));
+
 		// Initialize managers
 		gameServerManager = new GameServerManager();
 		instanceManager = new InstanceManager();
 
 		// Setup event-driven controller with informers for GameServer CRDs
 		System.out.println("Setting up event-driven controller for GameServer CRDs...");
-		ReconciliationQueue queue = new ReconciliationQueue();
-		informerManager = new InformerManager(kubernetesClient, queue);
+		ReconcileRateLimiter rateLimiter = new ReconcileRateLimiter(getReconcileQps(), getReconcileBurst());
+		ReconciliationQueue queue = new ReconciliationQueue(rateLimiter);
+		informerManager = new InformerManager(kubernetesClient, queue, shardCoordinator, getReconcileWorkers());
 		informerManager.setupInformers();
+
+		// Expose control loop metrics before the workers start
+		metricsServer = new MetricsServer(getMetricsPort());
+		metricsServer.register(ReconcileMetrics.get());
+		metricsServer.register(new QueueMetrics(queue));
+		if (nearCache != null) metricsServer.register(nearCache);
+		metricsServer.register(RedisManager.get().getWriteCoalescer());
+		metricsServer.register(WriteBehindQueue.get());
+		metricsServer.start();
+
 		informerManager.start();
 
 		// Initialize tasks - GameServer discovery must run FIRST (synchronously)
@@ -48,7 +86,7 @@ public class BMCManager {
 		gameServerDiscovery = new GameServerDiscoveryTask();
 		gameServerDiscovery.discoverGameServers();
 
-		serverDiscovery = new InstanceDiscoveryTask(instanceManager);
+		serverDiscovery = new InstanceDiscoveryTask(instanceManager, informerManager.getPodLister().getInformer());
 		playerListener = new PlayerListenerTask();
 		instanceListener = new InstanceListenerTask();
 		deploymentToggleListener = new DeploymentToggleListenerTask();
@@ -58,6 +96,10 @@ public class BMCManager {
 		shutdownTimeoutChecker = new ShutdownTimeoutCheckerTask();
 		instanceAgeChecker = new InstanceAgeCheckerTask();
 
+		// Every listener has registered its channels - open the shared subscriber connection
+		SubscriptionManager.get().start();
+		metricsServer.register(SubscriptionManager.get());
+
 		System.out.println("=== BMC Manager started successfully ===");
 	}
 
@@ -72,6 +114,109 @@ public class BMCManager {
 		return Integer.parseInt(portStr);
 	}
 
+	/**
+	 * Seed nodes for Redis Cluster, as host:port pairs separated by commas. Empty for a single
+	 * Redis server at REDIS_HOST.
+	 */
+	public static List<String> getRedisClusterNodes() {
+		Map<String, String> env = System.getenv();
+		String nodesStr = env.getOrDefault("REDIS_CLUSTER_NODES", "");
+		List<String> nodes = new ArrayList<>();
+		for (String node : nodesStr.split(",")) {
+			if (!node.isBlank()) nodes.add(node.trim());
+		}
+		return nodes;
+	}
+
+	public static KeyLayout getRedisKeyLayout() {
+		Map<String, String> env = System.getenv();
+		KeyLayout layout = KeyLayout.getLayout(env.getOrDefault("REDIS_KEY_LAYOUT", "legacy"));
+		return layout != null ? layout : KeyLayout.LEGACY;
+	}
+
+	public static boolean isShardedPubSubEnabled() {
+		Map<String, String> env = System.getenv();
+		return Boolean.parseBoolean(env.getOrDefault("REDIS_SHARDED_PUBSUB", "false"));
+	}
+
+	public static long getRedisWriteWindowMs() {
+		Map<String, String> env = System.getenv();
+		String windowStr = env.getOrDefault("REDIS_WRITE_WINDOW_MS", "2");
+		return Long.parseLong(windowStr);
+	}
+
+	public static boolean isLegacyPlayersFieldEnabled() {
+		Map<String, String> env = System.getenv();
+		return Boolean.parseBoolean(env.getOrDefault("LEGACY_PLAYERS_FIELD", "true"));
+	}
+
+	public static int getReconcileWorkers() {
+		Map<String, String> env = System.getenv();
+		String workersStr = env.get("RECONCILE_WORKERS");
+		if (workersStr == null) return Runtime.getRuntime().availableProcessors();
+		return Integer.parseInt(workersStr);
+	}
+
+	public static double getReconcileQps() {
+		Map<String, String> env = System.getenv();
+		String qpsStr = env.getOrDefault("RECONCILE_QPS", "50");
+		return Double.parseDouble(qpsStr);
+	}
+
+	public static int getReconcileBurst() {
+		Map<String, String> env = System.getenv();
+		String burstStr = env.getOrDefault("RECONCILE_BURST", "100");
+		return Integer.parseInt(burstStr);
+	}
+
+	public static int getMetricsPort() {
+		Map<String, String> env = System.getenv();
+		String portStr = env.getOrDefault("METRICS_PORT", "9090");
+		return Integer.parseInt(portStr);
+	}
+
+	public static boolean isShardingEnabled() {
+		Map<String, String> env = System.getenv();
+		return Boolean.parseBoolean(env.getOrDefault("SHARDING_ENABLED", "false"));
+	}
+
+	public static boolean isWarmRestartEnabled() {
+		Map<String, String> env = System.getenv();
+		return Boolean.parseBoolean(env.getOrDefault("WARM_RESTART", "true"));
+	}
+
+	public static int getNearCacheSize() {
+		Map<String, String> env = System.getenv();
+		String sizeStr = env.getOrDefault("NEAR_CACHE_SIZE", "10000");
+		return Integer.parseInt(sizeStr);
+	}
+
+	public static EventTransport getEventTransport() {
+		Map<String, String> env = System.getenv();
+		EventTransport transport = EventTransport.getTransport(env.getOrDefault("EVENT_TRANSPORT", "pubsub"));
+		return transport != null ? transport : EventTransport.PUBSUB;
+	}
+
+	public static long getStreamMaxLen() {
+		Map<String, String> env = System.getenv();
+		String maxLenStr = env.getOrDefault("STREAM_MAX_LEN", "10000");
+		return Long.parseLong(maxLenStr);
+	}
+
+	public static int getStreamBatchSize() {
+		Map<String, String> env = System.getenv();
+		String batchStr = env.getOrDefault("STREAM_BATCH_SIZE", "100");
+		return Integer.parseInt(batchStr);
+	}
+
+	public static String getManagerIdentity() {
+		Map<String, String> env = System.getenv();
+		String identity = env.get("POD_NAME");
+		if (identity == null) identity = env.get("HOSTNAME");
+		if (identity == null) identity = UUID.randomUUID().toString();
+		return identity;
+	}
+
 	public static String getNamespace() {
 		Map<String, String> env = System.getenv();
 		return env.getOrDefault("KUBERNETES_NAMESPACE", "bmc");
@@ -7,64 +7,74 @@ import dev.kyriji.bmcmanager.BMCManager;
 import dev.kyriji.bmcmanager.controllers.RedisManager;
 import dev.kyriji.bmcmanager.controllers.ShutdownNegotiationManager;
 import dev.kyriji.bmcmanager.crd.GameServer;
+import dev.kyriji.bmcmanager.enums.ReconcilePhase;
 import dev.kyriji.bmcmanager.logic.ScalingLogic;
+import dev.kyriji.bmcmanager.metrics.ReconcileMetrics;
 import dev.kyriji.bmcmanager.objects.*;
 import io.fabric8.kubernetes.client.KubernetesClient;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 
 import java.lang.reflect.Type;
 
 public class GameServerReconciler {
+	// Safety-net resync - instance state changes and player events trigger reconciles directly
+	private static final long RESYNC_INTERVAL_MS = 15_000;
+
 	private final KubernetesClient client;
 	private final ScalingLogic scalingLogic;
 	private final ScalingExecutor scalingExecutor;
+	private final SharedIndexInformer<GameServer> gameServerInformer;
+	private final ReconcileMetrics metrics = ReconcileMetrics.get();
 
-	public GameServerReconciler(KubernetesClient client) {
+	public GameServerReconciler(KubernetesClient client, PodLister podLister, SharedIndexInformer<GameServer> gameServerInformer) {
 		this.client = client;
+		this.gameServerInformer = gameServerInformer;
 		this.scalingLogic = new ScalingLogic();
-		this.scalingExecutor = new ScalingExecutor(client);
+		this.scalingExecutor = new ScalingExecutor(client, podLister);
 	}
 
 	public ReconcileResult reconcile(ReconcileRequest request) {
+		String name = request.getName();
 		try {
-			// 1. Fetch GameServer from Kubernetes
+			long phaseStart = System.nanoTime();
+
+			// 1. Fetch GameServer from the informer cache (falls back to Kubernetes on a miss)
 			GameServer gameServer = fetchGameServer(request);
 			if (gameServer == null) {
 				// Resource not found, don't requeue
-				return ReconcileResult.noRequeue();
+				return ReconcileResult.gone();
 			}
 
-			// 2. Get the GameServerWrapper from the registry, or create one if it doesn't exist
-			GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(request.getName());
+			// 2. Get the GameServerWrapper from the registry (created on demand) and
+			// update it with the latest GameServer CRD (refreshes scaling settings, queue strategy, etc.)
+			GameServerWrapper<?> wrapper = syncWrapper(request, gameServer);
 			if (wrapper == null) {
-				// Wrapper doesn't exist - create and register it on-demand
-				// This handles GameServers created after the manager started
-				wrapper = BMCManager.gameServerManager.createWrapper(gameServer);
-				if (wrapper == null) {
-					System.err.println("Failed to create wrapper for " + request.getName() + " (unknown deployment type?)");
-					return ReconcileResult.noRequeue();
-				}
-				BMCManager.gameServerManager.registerGameServer(wrapper);
+				return ReconcileResult.noRequeue();
 			}
-
-			// 2.5. Update wrapper with latest GameServer CRD (refreshes scaling settings, queue strategy, etc.)
-			wrapper.setGameServer(gameServer);
+			phaseStart = lap(name, ReconcilePhase.FETCH, phaseStart);
 
 			// 3. Query Redis for current enabled state
 			String enabledStr = RedisManager.get().hget("deployment:" + request.getName(), "enabled");
 			boolean enabled = enabledStr == null || Boolean.parseBoolean(enabledStr);
 			boolean wasEnabled = wrapper.isEnabled();
 			wrapper.setEnabled(enabled);
+			// Redis time so far - the instance fetch below is added to it
+			long redisNanos = System.nanoTime() - phaseStart;
 
 			// 4. If transitioning to disabled, delete all pods
 			if (wasEnabled && !enabled) {
 				System.out.println("Deployment " + request.getName() + " disabled, deleting all pods");
+				metrics.recordPhase(name, ReconcilePhase.REDIS, redisNanos);
+				phaseStart = System.nanoTime();
 				deleteAllPods(wrapper, gameServer.getMetadata().getNamespace());
-				return ReconcileResult.requeueAfter(5000);
+				lap(name, ReconcilePhase.EXECUTE, phaseStart);
+				return ReconcileResult.requeueAfter(RESYNC_INTERVAL_MS);
 			}
 
 			// 5. Skip scaling if disabled
 			if (!enabled) {
-				return ReconcileResult.requeueAfter(5000);
+				metrics.recordPhase(name, ReconcilePhase.REDIS, redisNanos);
+				return ReconcileResult.requeueAfter(RESYNC_INTERVAL_MS);
 			}
 
 			// 6. Route by deployment type
@@ -73,48 +83,119 @@ public class GameServerReconciler {
 				// PROCESS deployments use the base Instance type and don't participate in
 				// scaling logic, but still need their single pod created and kept alive.
 				if ("PROCESS".equalsIgnoreCase(gameServer.getSpec().getDeploymentType())) {
-					wrapper.fetchInstances();
+					phaseStart = System.nanoTime();
+					wrapper.checkDrift();
+					wrapper.ensureLoaded();
+					phaseStart = lap(name, ReconcilePhase.REDIS, phaseStart, redisNanos);
 					int currentPodCount = scalingExecutor.getCurrentPodCount(gameServer);
+					phaseStart = lap(name, ReconcilePhase.POD_COUNT, phaseStart);
 					if (currentPodCount == 0 && wrapper.getInstances().isEmpty()) {
 						ScalingDecision decision = ScalingDecision.scaleUp(0, 1);
-						scalingExecutor.executeScaling(decision, gameServer, wrapper);
+						boolean succeeded = scalingExecutor.executeScaling(decision, gameServer, wrapper);
+						lap(name, ReconcilePhase.EXECUTE, phaseStart);
+						if (!succeeded) {
+							return ReconcileResult.error();
+						}
 						System.out.println("Created pod for PROCESS deployment: " + request.getName());
 					}
-					return ReconcileResult.requeueAfter(5000);
+					return ReconcileResult.requeueAfter(RESYNC_INTERVAL_MS);
 				}
+				metrics.recordPhase(name, ReconcilePhase.REDIS, redisNanos);
 				return ReconcileResult.noRequeue();
 			}
 
 			@SuppressWarnings("unchecked")
 			GameServerWrapper<MinecraftInstance> minecraftWrapper = (GameServerWrapper<MinecraftInstance>) wrapper;
 
-			// 7. Fetch latest instance data from Redis
-			minecraftWrapper.fetchInstances();
+			// 7. The in-memory model is authoritative - Redis is only read back if it has drifted
+			phaseStart = System.nanoTime();
+			minecraftWrapper.checkDrift();
+			minecraftWrapper.ensureLoaded();
+			phaseStart = lap(name, ReconcilePhase.REDIS, phaseStart, redisNanos);
 
 			// 8. Get current pod count owned by this GameServer
 			int currentPodCount = scalingExecutor.getCurrentPodCount(gameServer);
+			phaseStart = lap(name, ReconcilePhase.POD_COUNT, phaseStart);
 
 			// 9. Determine scaling action
 			ScalingDecision decision = scalingLogic.determineScalingAction(minecraftWrapper, currentPodCount);
+			phaseStart = lap(name, ReconcilePhase.DECISION, phaseStart);
 
 			// 10. Execute scaling if needed
 			if (decision.getAction() != dev.kyriji.bmcmanager.enums.ScaleResult.NO_CHANGE) {
-				scalingExecutor.executeScaling(decision, gameServer, wrapper);
+				boolean succeeded = scalingExecutor.executeScaling(decision, gameServer, wrapper);
+				lap(name, ReconcilePhase.EXECUTE, phaseStart);
 				System.out.println("Scaled " + request.getName() + ": " + decision);
+				if (!succeeded) {
+					return ReconcileResult.error();
+				}
 			}
 
-			// 11. Always requeue after 5 seconds for periodic checks
-			return ReconcileResult.requeueAfter(5000);
+			// 11. Always requeue for periodic checks (events trigger earlier reconciles)
+			return ReconcileResult.requeueAfter(RESYNC_INTERVAL_MS);
 
 		} catch (Exception e) {
-			// Log error and requeue after longer delay
+			// Log error and requeue with backoff - repeated failures back off exponentially
 			System.err.println("Error reconciling " + request + ": " + e.getMessage());
 			e.printStackTrace();
-			return ReconcileResult.requeueAfter(10000);
+			return ReconcileResult.error();
 		}
 	}
 
+	/**
+	 * Record the time since phaseStart (plus any time already spent in the phase) and return
+	 * the current time as the start of the next phase.
+	 */
+	private long lap(String name, ReconcilePhase phase, long phaseStart, long carriedNanos) {
+		long now = System.nanoTime();
+		metrics.recordPhase(name, phase, carriedNanos + (now - phaseStart));
+		return now;
+	}
+
+	private long lap(String name, ReconcilePhase phase, long phaseStart) {
+		return lap(name, phase, phaseStart, 0);
+	}
+
+	/**
+	 * Keep the local view of a GameServer owned by another manager replica up to date without
+	 * acting on it - queueing and player routing still need its wrapper and instances.
+	 */
+	public void observe(ReconcileRequest request) {
+		GameServer gameServer = fetchGameServer(request);
+		if (gameServer == null) return;
+
+		GameServerWrapper<?> wrapper = syncWrapper(request, gameServer);
+		if (wrapper == null) return;
+		wrapper.checkDrift();
+		wrapper.ensureLoaded();
+	}
+
+	private GameServerWrapper<?> syncWrapper(ReconcileRequest request, GameServer gameServer) {
+		GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(request.getName());
+		if (wrapper == null) {
+			// Wrapper doesn't exist - create and register it on-demand
+			// This handles GameServers created after the manager started
+			wrapper = BMCManager.gameServerManager.createWrapper(gameServer);
+			if (wrapper == null) {
+				System.err.println("Failed to create wrapper for " + request.getName() + " (unknown deployment type?)");
+				return null;
+			}
+			// Another worker may have registered it meanwhile - use whichever won
+			wrapper = BMCManager.gameServerManager.registerGameServer(wrapper);
+		}
+
+		wrapper.setGameServer(gameServer);
+		return wrapper;
+	}
+
 	private GameServer fetchGameServer(ReconcileRequest request) {
+		// The informer keeps every GameServer in sync, keyed by namespace/name
+		GameServer cached = gameServerInformer.getIndexer().getByKey(request.getNamespace() + "/" + request.getName());
+		if (cached != null) {
+			return cached;
+		}
+
+		// Cache miss (not synced yet, or just deleted) - confirm against the API server
 		try {
 			return client.resources(GameServer.class)
 				.inNamespace(request.getNamespace())
@@ -127,13 +208,14 @@ public class GameServerReconciler {
 	}
 
 	private void deleteAllPods(GameServerWrapper<?> wrapper, String namespace) {
-		wrapper.fetchInstances();
+		wrapper.ensureLoaded();
 
 		// Use shutdown negotiation for deployment disable
 		// Shorter deadline (60 seconds) since this is a manual action
 		for (Instance instance : wrapper.getInstances()) {
 			String token = ShutdownNegotiationManager.get().proposeShutdown(
 				instance, "deployment_disabled", 60);
+			if (token == null) continue;
 			System.out.println("Proposed graceful shutdown for pod (deployment disabled): " +
 			                   instance.getPodName() + " (Token: " + token + ")");
 		}
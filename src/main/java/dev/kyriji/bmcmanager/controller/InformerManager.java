@@ -1,28 +1,46 @@
 package dev.kyriji.bmcmanager.controller;
 
+import dev.kyriji.bmcmanager.BMCManager;
 import dev.kyriji.bmcmanager.crd.GameServer;
+import dev.kyriji.bmcmanager.enums.ResourceType;
+import dev.kyriji.bmcmanager.metrics.ReconcileMetrics;
 import dev.kyriji.bmcmanager.objects.ReconcileRequest;
 import dev.kyriji.bmcmanager.objects.ReconcileResult;
+import dev.kyriji.bmcmanager.utils.SpecHash;
+import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.client.KubernetesClient;
 import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
 import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 import io.fabric8.kubernetes.client.informers.SharedInformerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.concurrent.atomic.AtomicBoolean;
 
 public class InformerManager {
+	public static final String MANAGED_BY_LABEL = "kyriji.dev/managed-by";
+	public static final String MANAGED_BY_VALUE = "bmc-manager";
+	// Events within this window for the same GameServer collapse into one reconcile
+	private static final long EVENT_DEBOUNCE_MS = 100;
+
 	private final KubernetesClient client;
 	private final SharedInformerFactory informerFactory;
 	private final ReconciliationQueue queue;
-	private final GameServerReconciler reconciler;
+	private final ShardCoordinator shardCoordinator;
+	private final ReconcileMetrics metrics = ReconcileMetrics.get();
+	private GameServerReconciler reconciler;
+	private final int workerCount;
 	private final AtomicBoolean running = new AtomicBoolean(false);
-	private Thread reconciliationThread;
+	private final List<Thread> workerThreads = new ArrayList<>();
 	private SharedIndexInformer<GameServer> gameServerInformer;
+	private SharedIndexInformer<Pod> podInformer;
+	private PodLister podLister;
 
-	public InformerManager(KubernetesClient client, ReconciliationQueue queue) {
+	public InformerManager(KubernetesClient client, ReconciliationQueue queue, ShardCoordinator shardCoordinator, int workerCount) {
 		this.client = client;
 		this.queue = queue;
-		this.reconciler = new GameServerReconciler(client);
+		this.shardCoordinator = shardCoordinator;
+		this.workerCount = Math.max(1, workerCount);
 		this.informerFactory = client.informers();
 	}
 
@@ -42,7 +60,11 @@ public class InformerManager {
 
 			@Override
 			public void onUpdate(GameServer oldGameServer, GameServer newGameServer) {
-				System.out.println("GameServer updated: " + newGameServer.getMetadata().getName());
+				// Resyncs and metadata-only updates are picked up by the periodic reconcile
+				if (!SpecHash.specChanged(oldGameServer, newGameServer)) return;
+
+				System.out.println("GameServer spec updated: " + newGameServer.getMetadata().getName() +
+						" (generation " + newGameServer.getMetadata().getGeneration() + ")");
 				queue.enqueue(ReconcileRequest.forGameServer(newGameServer));
 			}
 
@@ -50,22 +72,79 @@ public class InformerManager {
 			public void onDelete(GameServer gameServer, boolean deletedFinalStateUnknown) {
 				System.out.println("GameServer deleted: " + gameServer.getMetadata().getName());
 				// Pods will be garbage collected via owner references
-				// Optionally cleanup any in-memory state here
+				metrics.remove(gameServer.getMetadata().getName());
+			}
+		});
+
+		// Setup pod informer for pods created by PodBuilder, indexed by owning GameServer
+		String namespace = BMCManager.getNamespace();
+		podInformer = client.pods()
+			.inNamespace(namespace)
+			.withLabel(MANAGED_BY_LABEL, MANAGED_BY_VALUE)
+			.runnableInformer(10 * 60 * 1000L); // 10 minute resync period
+		podInformer.addIndexers(PodLister.indexers());
+		podLister = new PodLister(podInformer, namespace);
+
+		podInformer.addEventHandler(new ResourceEventHandler<Pod>() {
+			@Override
+			public void onAdd(Pod pod) {
+				enqueueOwner(pod);
+			}
+
+			@Override
+			public void onUpdate(Pod oldPod, Pod newPod) {
+				// Phase/status changes reach the reconciler through Redis instance state
+			}
+
+			@Override
+			public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+				enqueueOwner(pod);
 			}
 		});
 
-		System.out.println("Informers configured for GameServer CRDs");
+		this.reconciler = new GameServerReconciler(client, podLister, gameServerInformer);
+
+		// GameServers that just moved to this replica shouldn't wait for an event to be picked up
+		shardCoordinator.addMembershipListener(this::enqueueOwnedGameServers);
+
+		System.out.println("Informers configured for GameServer CRDs and managed pods");
+	}
+
+	/**
+	 * Reconcile a GameServer soon in response to a runtime event (instance state change,
+	 * player join/leave). Debounced per GameServer so a burst of events triggers one reconcile.
+	 */
+	public void triggerReconcile(String gameServerName) {
+		if (gameServerName == null || !shardCoordinator.owns(gameServerName)) return;
+		queue.enqueueAfter(new ReconcileRequest(BMCManager.getNamespace(), gameServerName, ResourceType.GAMESERVER), EVENT_DEBOUNCE_MS);
+	}
+
+	private void enqueueOwnedGameServers() {
+		int count = 0;
+		for (GameServer gameServer : gameServerInformer.getStore().list()) {
+			if (!shardCoordinator.owns(gameServer.getMetadata().getName())) continue;
+			queue.enqueue(ReconcileRequest.forGameServer(gameServer));
+			count++;
+		}
+		System.out.println("Shard ownership updated - " + count + " GameServer(s) owned by " + shardCoordinator.getIdentity());
+	}
+
+	private void enqueueOwner(Pod pod) {
+		String gameServerName = pod.getMetadata().getLabels() != null ? pod.getMetadata().getLabels().get("app") : null;
+		if (gameServerName == null) return;
+		queue.enqueue(new ReconcileRequest(pod.getMetadata().getNamespace(), gameServerName, ResourceType.GAMESERVER));
 	}
 
 	public void start() {
 		System.out.println("Starting informers...");
 		informerFactory.startAllRegisteredInformers();
+		podInformer.start();
 
 		// Wait for informers to sync
 		System.out.println("Waiting for informers to sync...");
 		int maxWaitSeconds = 30;
 		int waitedSeconds = 0;
-		while (!gameServerInformer.hasSynced() && waitedSeconds < maxWaitSeconds) {
+		while ((!gameServerInformer.hasSynced() || !podInformer.hasSynced()) && waitedSeconds < maxWaitSeconds) {
 			try {
 				Thread.sleep(1000);
 				waitedSeconds++;
@@ -87,54 +166,104 @@ public class InformerManager {
 
 	private void startReconciliationLoop() {
 		running.set(true);
-		reconciliationThread = new Thread(() -> {
-			System.out.println("Reconciliation loop started!");
-			while (running.get()) {
-				try {
-					ReconcileRequest request = queue.dequeue();
 
-					// Process the reconciliation request
-					ReconcileResult result = reconciler.reconcile(request);
+		// ReconciliationQueue never hands the same GameServer to two workers at once,
+		// so workers only ever run in parallel across different GameServers
+		for (int i = 0; i < workerCount; i++) {
+			Thread worker = new Thread(this::runWorker, "reconciliation-worker-" + i);
+			worker.setDaemon(false);
+			worker.start();
+			workerThreads.add(worker);
+		}
+
+		System.out.println("Reconciliation loop started with " + workerCount + " worker(s)");
+	}
+
+	private void runWorker() {
+		while (running.get()) {
+			try {
+				ReconcileRequest request = queue.dequeue();
 
-					// Only mark complete if NOT requeueing
-					// This prevents duplicate enqueues during the requeue delay window
-					if (!result.shouldRequeue()) {
+				// Owned by another replica - only refresh the local view of it
+				if (!shardCoordinator.owns(request.getName())) {
+					try {
+						reconciler.observe(request);
+					} finally {
+						queue.forget(request);
 						queue.markComplete(request);
-					} else {
-						queue.requeue(request, result.getRequeueAfterMs());
 					}
+					continue;
+				}
 
-				} catch (InterruptedException e) {
-					// Thread interrupted, exit loop
-					Thread.currentThread().interrupt();
-					break;
+				// Process the reconciliation request
+				ReconcileResult result;
+				long start = System.nanoTime();
+				try {
+					result = reconciler.reconcile(request);
 				} catch (Exception e) {
-					System.err.println("Error in reconciliation loop: " + e.getMessage());
-					e.printStackTrace();
+					metrics.recordReconcile(request.getName(), System.nanoTime() - start, true);
+					// Never leave a request marked as processing, or its GameServer stalls forever
+					queue.markComplete(request);
+					throw e;
+				}
+				// A reconcile of a deleted GameServer would only bring its series back
+				if (result.isGone()) {
+					metrics.remove(request.getName());
+				} else {
+					metrics.recordReconcile(request.getName(), System.nanoTime() - start, result.isError());
+				}
+
+				if (result.isError()) {
+					// Failed - back off exponentially until it succeeds again
+					queue.requeueWithBackoff(request);
+					continue;
+				}
+
+				queue.forget(request);
+
+				// Only mark complete if NOT requeueing
+				// This prevents duplicate enqueues during the requeue delay window
+				if (!result.shouldRequeue()) {
+					queue.markComplete(request);
+				} else {
+					queue.requeue(request, result.getRequeueAfterMs());
 				}
-			}
-			System.out.println("Reconciliation loop stopped");
-		}, "reconciliation-loop");
 
-		reconciliationThread.setDaemon(false);
-		reconciliationThread.start();
+			} catch (InterruptedException e) {
+				// Thread interrupted, exit loop
+				Thread.currentThread().interrupt();
+				break;
+			} catch (Exception e) {
+				System.err.println("Error in reconciliation loop: " + e.getMessage());
+				e.printStackTrace();
+			}
+		}
+		System.out.println("Reconciliation worker " + Thread.currentThread().getName() + " stopped");
 	}
 
 	public void shutdown() {
 		System.out.println("Shutting down InformerManager...");
 		running.set(false);
 
-		if (reconciliationThread != null) {
-			reconciliationThread.interrupt();
+		for (Thread worker : workerThreads) {
+			worker.interrupt();
+		}
+		for (Thread worker : workerThreads) {
 			try {
-				reconciliationThread.join(5000);
+				worker.join(5000);
 			} catch (InterruptedException e) {
 				Thread.currentThread().interrupt();
+				break;
 			}
 		}
 
 		informerFactory.stopAllRegisteredInformers();
+		podInformer.stop();
 		queue.shutdown();
 		System.out.println("InformerManager shutdown complete");
 	}
+
+	public PodLister getPodLister() {
+		return podLister;
+	}
 }
@@ -0,0 +1,63 @@
+package dev.kyriji.bmcmanager.controller;
+
+import io.fabric8.kubernetes.api.model.Pod;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.function.Function;
+
+/**
+ * Read-only view over the shared pod informer cache.
+ *
+ * The informer only watches pods labelled kyriji.dev/managed-by=bmc-manager in the manager's
+ * namespace, and indexes them by their "app" label (the owning GameServer's name), so
+ * per-GameServer lookups are served from memory instead of a LIST against the API server.
+ */
+public class PodLister {
+	public static final String APP_INDEX = "app";
+
+	private final SharedIndexInformer<Pod> informer;
+	private final String namespace;
+
+	public PodLister(SharedIndexInformer<Pod> informer, String namespace) {
+		this.informer = informer;
+		this.namespace = namespace;
+	}
+
+	/**
+	 * Index function for {@link #APP_INDEX}: pods are keyed by the GameServer that owns them.
+	 */
+	public static Map<String, Function<Pod, List<String>>> indexers() {
+		return Map.of(APP_INDEX, pod -> {
+			Map<String, String> labels = pod.getMetadata().getLabels();
+			String app = labels != null ? labels.get("app") : null;
+			return app != null ? List.of(app) : List.of();
+		});
+	}
+
+	/**
+	 * Whether the cache can answer for the given namespace. Callers should fall back to
+	 * the API server when this is false.
+	 */
+	public boolean canServe(String namespace) {
+		return informer.hasSynced() && Objects.equals(this.namespace, namespace);
+	}
+
+	public List<Pod> getPods(String gameServerName) {
+		return informer.getIndexer().byIndex(APP_INDEX, gameServerName);
+	}
+
+	public int countPods(String gameServerName) {
+		return getPods(gameServerName).size();
+	}
+
+	public Pod getPod(String podName) {
+		return informer.getIndexer().getByKey(namespace + "/" + podName);
+	}
+
+	public SharedIndexInformer<Pod> getInformer() {
+		return informer;
+	}
+}
@@ -0,0 +1,80 @@
+package dev.kyriji.bmcmanager.controller;
+
+import dev.kyriji.bmcmanager.objects.ReconcileRequest;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limiting for the reconciliation queue.
+ *
+ * - Per-request exponential backoff: every consecutive failure of the same GameServer doubles
+ *   its retry delay (with jitter) up to MAX_BACKOFF_MS. A successful reconcile resets it.
+ * - Global token bucket: caps the total number of reconciles started per second across all
+ *   workers, so a burst of requeues can't flood the API server.
+ */
+public class ReconcileRateLimiter {
+	private static final long BASE_BACKOFF_MS = 1_000;
+	private static final long MAX_BACKOFF_MS = 5 * 60 * 1_000; // 5 minutes
+	private static final double JITTER_FACTOR = 0.2; // +/- 20%
+
+	private final Map<ReconcileRequest, Integer> failures = new ConcurrentHashMap<>();
+
+	private final double tokensPerSecond;
+	private final double burst;
+	private double tokens;
+	private long lastRefillNanos;
+
+	public ReconcileRateLimiter(double tokensPerSecond, int burst) {
+		this.tokensPerSecond = tokensPerSecond;
+		this.burst = Math.max(1, burst);
+		this.tokens = this.burst;
+		this.lastRefillNanos = System.nanoTime();
+	}
+
+	/**
+	 * Record a failure for the request and return how long to wait before retrying it.
+	 */
+	public long nextBackoff(ReconcileRequest request) {
+		int failureCount = failures.merge(request, 1, Integer::sum);
+
+		long backoff = BASE_BACKOFF_MS << Math.min(failureCount - 1, 30);
+		if (backoff <= 0 || backoff > MAX_BACKOFF_MS) backoff = MAX_BACKOFF_MS;
+
+		double jitter = 1 + (ThreadLocalRandom.current().nextDouble() * 2 - 1) * JITTER_FACTOR;
+		return Math.min(MAX_BACKOFF_MS, (long) (backoff * jitter));
+	}
+
+	/**
+	 * Reset the backoff for a request after it reconciled successfully.
+	 */
+	public void forget(ReconcileRequest request) {
+		failures.remove(request);
+	}
+
+	public int getFailureCount(ReconcileRequest request) {
+		return failures.getOrDefault(request, 0);
+	}
+
+	/**
+	 * Take a token from the global bucket, blocking until one is available.
+	 */
+	public void acquire() throws InterruptedException {
+		long waitNanos;
+		synchronized (this) {
+			long now = System.nanoTime();
+			tokens = Math.min(burst, tokens + (now - lastRefillNanos) / 1e9 * tokensPerSecond);
+			lastRefillNanos = now;
+
+			// Tokens may go negative: each waiter reserves its slot and sleeps until it's due
+			tokens -= 1;
+			waitNanos = tokens >= 0 ? 0 : (long) (-tokens / tokensPerSecond * 1e9);
+		}
+
+		if (waitNanos > 0) {
+			TimeUnit.NANOSECONDS.sleep(waitNanos);
+		}
+	}
+}
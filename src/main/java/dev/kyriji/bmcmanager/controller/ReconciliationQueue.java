@@ -2,61 +2,204 @@ package dev.kyriji.bmcmanager.controller;
 
 import dev.kyriji.bmcmanager.objects.ReconcileRequest;
 
+import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
+/**
+ * Work queue shared by the reconciliation workers.
+ *
+ * A request is held by at most one worker at a time: while a GameServer is being
+ * reconciled, further enqueues for it are recorded as "dirty" and the request is
+ * handed out again once the current worker finishes, instead of being processed
+ * concurrently by a second worker. Different GameServers are processed in parallel.
+ *
+ * Delayed requests live in a single DelayQueue drained by one pump thread, with at most
+ * one live entry per GameServer. Enqueueing a waiting request with a shorter delay
+ * supersedes its entry; the superseded entry is skipped when it expires. The exception is a
+ * request backing off after a failed reconcile: events don't bring its retry forward, so a
+ * GameServer that keeps failing on a busy network still backs off.
+ */
 public class ReconciliationQueue {
 	private final BlockingQueue<ReconcileRequest> queue;
+	// Requests that are queued, being processed, or waiting out a delay
 	private final Set<ReconcileRequest> inFlight;
-	private final ScheduledExecutorService scheduler;
+	// Requests currently held by a worker
+	private final Set<ReconcileRequest> processing;
+	// Requests enqueued again while a worker was processing them
+	private final Set<ReconcileRequest> dirty;
+	// Live delay entry per waiting request
+	private final Map<ReconcileRequest, DelayedRequest> waiting;
+	private final DelayQueue<DelayedRequest> delayed;
+	private final Thread delayPump;
+	private final ReconcileRateLimiter rateLimiter;
 
-	public ReconciliationQueue() {
+	// How late delayed requests reach the queue compared to when they were due
+	private final AtomicLong lastSchedulingLagMs = new AtomicLong();
+	private final AtomicLong maxSchedulingLagMs = new AtomicLong();
+	private final LongAdder totalSchedulingLagMs = new LongAdder();
+	private final LongAdder delayedFired = new LongAdder();
+
+	public ReconciliationQueue(ReconcileRateLimiter rateLimiter) {
+		this.rateLimiter = rateLimiter;
 		this.queue = new LinkedBlockingQueue<>();
 		this.inFlight = ConcurrentHashMap.newKeySet();
-		this.scheduler = Executors.newScheduledThreadPool(1, r -> {
-			Thread t = new Thread(r, "reconciliation-requeue-scheduler");
-			t.setDaemon(true);
-			return t;
-		});
+		this.processing = ConcurrentHashMap.newKeySet();
+		this.dirty = ConcurrentHashMap.newKeySet();
+		this.waiting = new ConcurrentHashMap<>();
+		this.delayed = new DelayQueue<>();
+
+		this.delayPump = new Thread(this::pumpDelayed, "reconciliation-delay-pump");
+		this.delayPump.setDaemon(true);
+		this.delayPump.start();
+	}
+
+	public void enqueue(ReconcileRequest request) {
+		enqueueAfter(request, 0);
 	}
 
-	public synchronized void enqueue(ReconcileRequest request) {
+	/**
+	 * Enqueue a request to run no later than delayMs from now.
+	 *
+	 * Used to debounce event-triggered reconciles: repeated calls within the delay collapse
+	 * into a single reconcile, and a pending periodic requeue is pulled forward rather than
+	 * duplicated. A pending backoff retry is left where it is.
+	 */
+	public synchronized void enqueueAfter(ReconcileRequest request, long delayMs) {
+		if (processing.contains(request)) {
+			// A worker is reconciling this GameServer right now - run it again once that finishes
+			dirty.add(request);
+			return;
+		}
+
+		DelayedRequest pending = waiting.get(request);
+		if (pending != null) {
+			// Failed last time - the retry already covers this, at its backoff deadline
+			if (pending.backoff) return;
+
+			// Only ever move a pending delay earlier
+			long readyAt = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs);
+			if (pending.readyAtNanos <= readyAt) return;
+
+			if (delayMs <= 0) {
+				waiting.remove(request);
+				queue.offer(request);
+			} else {
+				schedule(request, delayMs, false);
+			}
+			return;
+		}
+
 		if (inFlight.contains(request)) {
-			// Already being processed or queued
+			// Already queued
 			return;
 		}
 
 		inFlight.add(request);
-		queue.offer(request);
+		if (delayMs <= 0) {
+			queue.offer(request);
+		} else {
+			schedule(request, delayMs, false);
+		}
 	}
 
+	/**
+	 * Blocks until a request is available and marks it as being processed.
+	 * Every dequeued request must be handed back through {@link #markComplete} or {@link #requeue}.
+	 * Also blocks on the global rate limit, so the total reconcile rate stays bounded. The token
+	 * is taken first, so a request is never marked as processing while it waits on the limit.
+	 */
 	public ReconcileRequest dequeue() throws InterruptedException {
-		return queue.take();
+		rateLimiter.acquire();
+		ReconcileRequest request = queue.take();
+		synchronized (this) {
+			processing.add(request);
+		}
+		return request;
+	}
+
+	/**
+	 * Requeue a request whose reconcile failed, delaying it by its current exponential backoff.
+	 */
+	public void requeueWithBackoff(ReconcileRequest request) {
+		long delayMs = rateLimiter.nextBackoff(request);
+		System.out.println("Reconcile of " + request.getName() + " failed " + rateLimiter.getFailureCount(request) +
+				" time(s) in a row, retrying in " + delayMs + "ms");
+		requeue(request, delayMs, true);
+	}
+
+	/**
+	 * Reset the failure backoff for a request after a successful reconcile. Until then its
+	 * retries can't be brought forward.
+	 */
+	public void forget(ReconcileRequest request) {
+		rateLimiter.forget(request);
 	}
 
 	public void requeue(ReconcileRequest request, long delayMs) {
-		// Note: request stays in inFlight during delay to prevent duplicate enqueues
-		scheduler.schedule(() -> {
-			synchronized (this) {
-				// Remove old request from in-flight
-				inFlight.remove(request);
-				// Create new request with fresh timestamp
-				ReconcileRequest newRequest = new ReconcileRequest(
-					request.getNamespace(),
-					request.getName(),
-					request.getResourceType()
-				);
-				// Add new request to in-flight and queue
-				inFlight.add(newRequest);
-				queue.offer(newRequest);
-			}
-		}, delayMs, TimeUnit.MILLISECONDS);
+		requeue(request, delayMs, false);
+	}
+
+	private synchronized void requeue(ReconcileRequest request, long delayMs, boolean backoff) {
+		processing.remove(request);
+
+		// Something changed while we were reconciling - don't wait out the delay, unless the
+		// reconcile failed and the retry has to back off anyway
+		if (dirty.remove(request) && !backoff) {
+			queue.offer(request);
+			return;
+		}
+
+		// Note: request stays in inFlight during delay so it isn't queued twice
+		schedule(request, delayMs, backoff);
 	}
 
 	public synchronized void markComplete(ReconcileRequest request) {
+		processing.remove(request);
+
+		if (dirty.remove(request)) {
+			queue.offer(request);
+			return;
+		}
+
 		inFlight.remove(request);
 	}
 
+	private void schedule(ReconcileRequest request, long delayMs, boolean backoff) {
+		DelayedRequest entry = new DelayedRequest(request, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMs), backoff);
+		// Any previous entry for this request is now stale and is dropped when it expires
+		waiting.put(request, entry);
+		delayed.offer(entry);
+	}
+
+	private void pumpDelayed() {
+		while (!Thread.currentThread().isInterrupted()) {
+			DelayedRequest entry;
+			try {
+				entry = delayed.take();
+			} catch (InterruptedException e) {
+				break;
+			}
+
+			synchronized (this) {
+				// Superseded by a newer entry for the same request
+				if (!waiting.remove(entry.request, entry)) continue;
+				queue.offer(entry.request);
+			}
+
+			long lagMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - entry.readyAtNanos);
+			lastSchedulingLagMs.set(lagMs);
+			maxSchedulingLagMs.accumulateAndGet(lagMs, Math::max);
+			totalSchedulingLagMs.add(lagMs);
+			delayedFired.increment();
+		}
+	}
+
+	/**
+	 * Requests ready to be picked up by a worker.
+	 */
 	public int size() {
 		return queue.size();
 	}
@@ -65,15 +208,62 @@ public class ReconciliationQueue {
 		return inFlight.size();
 	}
 
+	public int processingCount() {
+		return processing.size();
+	}
+
+	/**
+	 * Requests waiting out a requeue delay or debounce window.
+	 */
+	public int delayedCount() {
+		return waiting.size();
+	}
+
+	public long getLastSchedulingLagMs() {
+		return lastSchedulingLagMs.get();
+	}
+
+	public long getMaxSchedulingLagMs() {
+		return maxSchedulingLagMs.get();
+	}
+
+	public long getTotalSchedulingLagMs() {
+		return totalSchedulingLagMs.sum();
+	}
+
+	public long getDelayedFiredCount() {
+		return delayedFired.sum();
+	}
+
 	public void shutdown() {
-		scheduler.shutdown();
+		delayPump.interrupt();
 		try {
-			if (!scheduler.awaitTermination(5, TimeUnit.SECONDS)) {
-				scheduler.shutdownNow();
-			}
+			delayPump.join(5000);
 		} catch (InterruptedException e) {
-			scheduler.shutdownNow();
 			Thread.currentThread().interrupt();
 		}
 	}
+
+	private static class DelayedRequest implements Delayed {
+		final ReconcileRequest request;
+		final long readyAtNanos;
+		// A retry after a failed reconcile - not moved earlier by events
+		final boolean backoff;
+
+		DelayedRequest(ReconcileRequest request, long readyAtNanos, boolean backoff) {
+			this.request = request;
+			this.readyAtNanos = readyAtNanos;
+			this.backoff = backoff;
+		}
+
+		@Override
+		public long getDelay(TimeUnit unit) {
+			return unit.convert(readyAtNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+		}
+
+		@Override
+		public int compareTo(Delayed other) {
+			return Long.compare(readyAtNanos, ((DelayedRequest) other).readyAtNanos);
+		}
+	}
 }
@@ -14,29 +14,36 @@ import io.fabric8.kubernetes.client.KubernetesClient;
 public class ScalingExecutor {
 	private final KubernetesClient client;
 	private final PodBuilder podBuilder;
+	private final PodLister podLister;
 
-	public ScalingExecutor(KubernetesClient client) {
+	public ScalingExecutor(KubernetesClient client, PodLister podLister) {
 		this.client = client;
 		this.podBuilder = new PodBuilder();
+		this.podLister = podLister;
 	}
 
-	public void executeScaling(ScalingDecision decision, GameServer gameServer, GameServerWrapper<?> wrapper) {
+	/**
+	 * @return false if any part of the scaling action failed, so the caller can back off
+	 */
+	public boolean executeScaling(ScalingDecision decision, GameServer gameServer, GameServerWrapper<?> wrapper) {
 		if (decision.getAction() == ScaleResult.NO_CHANGE) {
-			return;
+			return true;
 		}
 
 		String namespace = gameServer.getMetadata().getNamespace();
 
 		if (decision.getAction() == ScaleResult.UP) {
-			scaleUp(decision, gameServer, namespace, wrapper);
+			return scaleUp(decision, gameServer, namespace, wrapper);
 		} else if (decision.getAction() == ScaleResult.DOWN) {
 			scaleDown(decision, namespace, wrapper);
 		}
+		return true;
 	}
 
-	private void scaleUp(ScalingDecision decision, GameServer gameServer, String namespace, GameServerWrapper<?> wrapper) {
+	private boolean scaleUp(ScalingDecision decision, GameServer gameServer, String namespace, GameServerWrapper<?> wrapper) {
 		// Create pods directly - no Deployment replica manipulation needed
 		int podsToCreate = decision.getTargetReplicas() - decision.getCurrentReplicas();
+		boolean allCreated = true;
 
 		for (int i = 0; i < podsToCreate; i++) {
 			try {
@@ -48,11 +55,13 @@ public class ScalingExecutor {
 				System.out.println("Created pod: " + pod.getMetadata().getName() + " for GameServer: " + gameServer.getMetadata().getName());
 			} catch (Exception e) {
 				System.err.println("Failed to create pod for " + gameServer.getMetadata().getName() + ": " + e.getMessage());
+				allCreated = false;
 			}
 		}
 
 		// Update cooldown timestamp
 		wrapper.setLastScaleUp(System.currentTimeMillis());
+		return allCreated;
 	}
 
 	private void scaleDown(ScalingDecision decision, String namespace, GameServerWrapper<?> wrapper) {
@@ -71,6 +80,7 @@ public class ScalingExecutor {
 		//   - InstanceListenerTask will then delete the pod
 		for (Instance instance : decision.getPodsToDelete()) {
 			String token = ShutdownNegotiationManager.get().proposeShutdown(instance, "scale_down");
+			if (token == null) continue;
 			System.out.println("Proposed graceful shutdown for pod: " + instance.getPodName() +
 			                   " (Token: " + token + ")");
 		}
@@ -81,6 +91,13 @@ public class ScalingExecutor {
 	}
 
 	public int getCurrentPodCount(GameServer gameServer) {
+		String namespace = gameServer.getMetadata().getNamespace();
+
+		// Served from the pod informer cache - no API call per reconcile
+		if (podLister.canServe(namespace)) {
+			return podLister.countPods(gameServer.getMetadata().getName());
+		}
+
 		try {
 			return client.pods()
 				.inNamespace(gameServer.getMetadata().getNamespace())
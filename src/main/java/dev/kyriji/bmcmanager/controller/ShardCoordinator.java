@@ -0,0 +1,334 @@
+package dev.kyriji.bmcmanager.controller;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseSpec;
+import io.fabric8.kubernetes.client.KubernetesClient;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Instant;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.LongSupplier;
+
+/**
+ * Splits GameServers between manager replicas.
+ *
+ * Every replica keeps its own Lease (labelled as a member) renewed in the namespace. The set
+ * of unexpired member Leases forms a consistent hash ring, and a GameServer belongs to the
+ * replica its name hashes to. When a replica joins or its Lease expires, only the GameServers
+ * on the affected arcs of the ring move, and listeners are notified so the new owners can
+ * pick them up straight away.
+ *
+ * A replica that cannot renew its own Lease for a full lease duration stops claiming anything,
+ * since the other replicas will already have taken over its share.
+ *
+ * A GameServer that moves to this replica only becomes active after a settle period. Until
+ * then its previous owner may not have seen the new membership yet (or noticed its own lease
+ * expire) and can still be acting on it, so for that window neither replica treats it as its
+ * own. Listeners are notified again once the settle period is over.
+ *
+ * With sharding disabled (the default) this replica owns everything and no Leases are touched.
+ */
+public class ShardCoordinator {
+	public static final String MEMBER_LABEL = "kyriji.dev/bmc-manager-member";
+	private static final String LEASE_PREFIX = "bmc-manager-";
+	private static final int LEASE_DURATION_SECONDS = 15;
+	private static final long RENEW_INTERVAL_MS = 5000;
+	// Points per member on the ring - smooths out the share each replica ends up with
+	private static final int VIRTUAL_NODES = 64;
+	// Two renew intervals - every other replica has refreshed membership at least once by then
+	static final long SETTLE_MS = 2 * RENEW_INTERVAL_MS;
+
+	private final KubernetesClient client;
+	private final String namespace;
+	private final String identity;
+	private final boolean enabled;
+	private final LongSupplier clock;
+	private final List<Runnable> membershipListeners = new CopyOnWriteArrayList<>();
+
+	private volatile NavigableMap<Long, String> ring = new TreeMap<>();
+	// The ring before the last membership change, and when keys gained from it become active
+	private volatile NavigableMap<Long, String> previousRing = new TreeMap<>();
+	private volatile long settleUntil;
+	private boolean settling;
+	private volatile List<String> members = List.of();
+	private volatile long lastRenewMillis;
+	private volatile boolean healthy;
+	private Thread membershipThread;
+
+	public ShardCoordinator(KubernetesClient client, String namespace, String identity, boolean enabled) {
+		this(client, namespace, identity, enabled, System::currentTimeMillis);
+	}
+
+	ShardCoordinator(KubernetesClient client, String namespace, String identity, boolean enabled, LongSupplier clock) {
+		this.client = client;
+		this.namespace = namespace;
+		this.identity = identity;
+		this.enabled = enabled;
+		this.clock = clock;
+	}
+
+	/**
+	 * Join the member set and start renewing. Blocks for the first renewal so that ownership is
+	 * known before any reconciles run.
+	 */
+	public void start() {
+		if (!enabled) {
+			System.out.println("Sharding disabled - this manager owns every GameServer");
+			return;
+		}
+
+		System.out.println("Joining manager shard ring as " + identity);
+		tick();
+
+		membershipThread = new Thread(() -> {
+			while (!Thread.currentThread().isInterrupted()) {
+				try {
+					Thread.sleep(RENEW_INTERVAL_MS);
+					tick();
+				} catch (InterruptedException e) {
+					break;
+				}
+			}
+		}, "shard-membership");
+		membershipThread.setDaemon(true);
+		membershipThread.start();
+	}
+
+	private void tick() {
+		boolean wasHealthy = healthy;
+		try {
+			renew();
+		} catch (Exception e) {
+			System.err.println("Failed to renew shard lease for " + identity + ": " + e.getMessage());
+		}
+		checkHealth();
+
+		boolean changed = false;
+		try {
+			changed = refreshMembership();
+		} catch (Exception e) {
+			System.err.println("Failed to refresh shard membership: " + e.getMessage());
+		}
+
+		boolean settled = false;
+		if (settling && clock.getAsLong() >= settleUntil) {
+			settling = false;
+			settled = true;
+			System.out.println("Shard handoff settled - taking over GameServers gained from " + members);
+		}
+
+		if (changed || settled || (!wasHealthy && healthy)) {
+			for (Runnable listener : membershipListeners) {
+				try {
+					listener.run();
+				} catch (Exception e) {
+					System.err.println("Error in shard membership listener: " + e.getMessage());
+					e.printStackTrace();
+				}
+			}
+		}
+	}
+
+	private void renew() {
+		ZonedDateTime now = ZonedDateTime.now();
+		Lease lease = new LeaseBuilder()
+			.withNewMetadata()
+				.withName(LEASE_PREFIX + identity)
+				.withNamespace(namespace)
+				.addToLabels(MEMBER_LABEL, "true")
+			.endMetadata()
+			.withNewSpec()
+				.withHolderIdentity(identity)
+				.withLeaseDurationSeconds(LEASE_DURATION_SECONDS)
+				.withRenewTime(now)
+			.endSpec()
+			.build();
+
+		// Server-side apply - creates the Lease, or takes over the fields this manager sets
+		client.coordination().v1().leases()
+			.inNamespace(namespace)
+			.resource(lease)
+			.serverSideApply();
+		recordRenewal();
+	}
+
+	void recordRenewal() {
+		lastRenewMillis = clock.getAsLong();
+		healthy = true;
+	}
+
+	void checkHealth() {
+		boolean wasHealthy = healthy;
+		healthy = clock.getAsLong() - lastRenewMillis < LEASE_DURATION_SECONDS * 1000L;
+		if (wasHealthy && !healthy) {
+			System.err.println("Shard lease for " + identity + " expired - releasing all GameServers");
+		}
+	}
+
+	private boolean refreshMembership() {
+		List<Lease> leases = client.coordination().v1().leases()
+			.inNamespace(namespace)
+			.withLabel(MEMBER_LABEL, "true")
+			.list()
+			.getItems();
+		return updateMembership(leases);
+	}
+
+	/**
+	 * Rebuild the ring from the unexpired member Leases. Keys that moved to this replica enter
+	 * the settle period.
+	 *
+	 * @return true if the member set changed
+	 */
+	boolean updateMembership(List<Lease> leases) {
+		Instant now = Instant.ofEpochMilli(clock.getAsLong());
+		List<String> live = new ArrayList<>();
+		for (Lease lease : leases) {
+			LeaseSpec spec = lease.getSpec();
+			if (spec == null || spec.getHolderIdentity() == null || spec.getRenewTime() == null) continue;
+
+			int duration = spec.getLeaseDurationSeconds() != null ? spec.getLeaseDurationSeconds() : LEASE_DURATION_SECONDS;
+			if (spec.getRenewTime().plusSeconds(duration).toInstant().isAfter(now)) {
+				live.add(spec.getHolderIdentity());
+			}
+		}
+		Collections.sort(live);
+
+		if (live.equals(members)) return false;
+
+		NavigableMap<Long, String> newRing = new TreeMap<>();
+		for (String member : live) {
+			for (int i = 0; i < VIRTUAL_NODES; i++) {
+				newRing.put(hash(member + "#" + i), member);
+			}
+		}
+
+		System.out.println("Shard membership changed: " + members + " -> " + live);
+		previousRing = ring;
+		settleUntil = clock.getAsLong() + SETTLE_MS;
+		settling = true;
+		ring = newRing;
+		members = List.copyOf(live);
+		return true;
+	}
+
+	/**
+	 * Whether this replica is responsible for the given key (normally a GameServer name).
+	 */
+	public boolean owns(String key) {
+		if (!enabled) return true;
+		if (!healthy || key == null) return false;
+
+		return identity.equals(ownerOf(key)) && !inHandoff(key);
+	}
+
+	/**
+	 * Whether another replica is, or may still be, responsible for the key. Unlike !owns(key),
+	 * this stays false for this replica's own keys while its lease is briefly unhealthy.
+	 */
+	public boolean ownedByOther(String key) {
+		if (!enabled || key == null) return false;
+
+		String owner = ownerOf(key);
+		return owner != null && (!identity.equals(owner) || inHandoff(key));
+	}
+
+	/**
+	 * The key hashes to this replica now, but to someone else (or no one known) before the last
+	 * membership change, and the settle period isn't over.
+	 */
+	private boolean inHandoff(String key) {
+		if (clock.getAsLong() >= settleUntil) return false;
+		return !identity.equals(ownerIn(previousRing, key));
+	}
+
+	/**
+	 * Whether every key that hashes to this replica is active, i.e. no handoff is still settling.
+	 */
+	public boolean isSettled() {
+		if (!enabled) return true;
+		return healthy && clock.getAsLong() >= settleUntil;
+	}
+
+	/**
+	 * The member the key hashes to, or null if no members are known.
+	 */
+	public String ownerOf(String key) {
+		if (!enabled) return identity;
+		return ownerIn(ring, key);
+	}
+
+	private static String ownerIn(NavigableMap<Long, String> ring, String key) {
+		if (ring.isEmpty()) return null;
+
+		Map.Entry<Long, String> entry = ring.ceilingEntry(hash(key));
+		if (entry == null) entry = ring.firstEntry();
+		return entry.getValue();
+	}
+
+	/**
+	 * True when no other replica is live, i.e. this manager is free to reset shared state.
+	 */
+	public boolean isOnlyMember() {
+		if (!enabled) return true;
+		List<String> current = members;
+		return current.isEmpty() || (current.size() == 1 && current.get(0).equals(identity));
+	}
+
+	/**
+	 * Run the listener whenever ownership may have moved (members joined or left, a handoff
+	 * settled, or this replica regained its lease).
+	 */
+	public void addMembershipListener(Runnable listener) {
+		membershipListeners.add(listener);
+	}
+
+	public boolean isEnabled() {
+		return enabled;
+	}
+
+	public String getIdentity() {
+		return identity;
+	}
+
+	public List<String> getMembers() {
+		return members;
+	}
+
+	/**
+	 * Leave the ring so the other replicas take over immediately instead of waiting for the lease to expire.
+	 */
+	public void shutdown() {
+		if (!enabled) return;
+
+		if (membershipThread != null) membershipThread.interrupt();
+		healthy = false;
+		try {
+			client.coordination().v1().leases()
+				.inNamespace(namespace)
+				.withName(LEASE_PREFIX + identity)
+				.delete();
+			System.out.println("Released shard lease for " + identity);
+		} catch (Exception e) {
+			System.err.println("Failed to release shard lease for " + identity + ": " + e.getMessage());
+		}
+	}
+
+	private static long hash(String key) {
+		try {
+			byte[] digest = MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8));
+			long value = 0;
+			for (int i = 0; i < Long.BYTES; i++) {
+				value = (value << 8) | (digest[i] & 0xff);
+			}
+			return value;
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 not available", e);
+		}
+	}
+}
@@ -1,74 +1,115 @@
 package dev.kyriji.bmcmanager.controllers;
 
+import dev.kyriji.bmcmanager.BMCManager;
 import dev.kyriji.bmcmanager.crd.GameServer;
 import dev.kyriji.bmcmanager.enums.DeploymentType;
+import dev.kyriji.bmcmanager.metrics.ReconcileMetrics;
 import dev.kyriji.bmcmanager.objects.Game;
 import dev.kyriji.bmcmanager.objects.GameServerWrapper;
 import dev.kyriji.bmcmanager.objects.Process;
 import dev.kyriji.bmcmanager.objects.Proxy;
 
 import java.util.ArrayList;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Registry of GameServer wrappers, read from the reconciliation workers, every listener thread
+ * and discovery.
+ *
+ * Wrappers are keyed by name. Changes are rare and serialized; after each one the typed views
+ * (all, games, initial games, proxy) are rebuilt as immutable lists and published together, so
+ * readers never lock, copy or filter.
+ */
 public class GameServerManager {
-	public List<GameServerWrapper<?>> gameServers;
+	private final Map<String, GameServerWrapper<?>> gameServers = new ConcurrentHashMap<>();
+	private volatile Views views = Views.EMPTY;
 
 	public GameServerManager() {
-		this.gameServers = new ArrayList<>();
 	}
 
-	public void registerGameServer(GameServerWrapper<?> gameServer) {
+	/**
+	 * Register a wrapper unless one with the same name already exists.
+	 *
+	 * @return the registered wrapper - the existing one if another thread got there first
+	 */
+	public synchronized GameServerWrapper<?> registerGameServer(GameServerWrapper<?> gameServer) {
+		GameServerWrapper<?> existing = gameServers.putIfAbsent(gameServer.getName(), gameServer);
+		if (existing != null) return existing;
+
 		System.out.println("Registering GameServer " + gameServer.getName());
-		gameServers.add(gameServer);
+		publishViews();
+		return gameServer;
 	}
 
-	public void unregisterGameServer(GameServerWrapper<?> gameServer) {
+	public synchronized void unregisterGameServer(GameServerWrapper<?> gameServer) {
 		System.out.println("Unregistering GameServer " + gameServer.getName());
-		gameServers.remove(gameServer);
+		if (gameServers.remove(gameServer.getName()) == null) return;
+		publishViews();
+		BMCManager.instanceManager.indexInstances(gameServer.getName(), List.of());
+		ReconcileMetrics.get().remove(gameServer.getName());
 	}
 
-	public void updateGameServer(GameServerWrapper<?> gameServer) {
-		GameServerWrapper<?> wrapper = getGameServer(gameServer.getName());
-		if (wrapper == null) return;
-		gameServers.removeIf(gs -> gs.getName().equals(gameServer.getName()));
-		gameServers.add(gameServer);
+	public synchronized void updateGameServer(GameServerWrapper<?> gameServer) {
+		if (gameServers.replace(gameServer.getName(), gameServer) == null) return;
+		publishViews();
 	}
 
+	// Caller holds the lock
+	private void publishViews() {
+		List<GameServerWrapper<?>> all = new ArrayList<>(gameServers.values());
+		all.sort(Comparator.comparing(GameServerWrapper::getName));
+
+		List<Game> games = new ArrayList<>();
+		List<Game> initialGames = new ArrayList<>();
+		Proxy proxy = null;
+		for (GameServerWrapper<?> gameServer : all) {
+			if (gameServer instanceof Game game) {
+				games.add(game);
+				if (game.isInitial()) initialGames.add(game);
+			} else if (gameServer instanceof Proxy candidate && proxy == null) {
+				proxy = candidate;
+			}
+		}
+
+		views = new Views(List.copyOf(all), List.copyOf(games), List.copyOf(initialGames), proxy);
+	}
+
+	/**
+	 * @return an immutable snapshot
+	 */
 	public List<GameServerWrapper<?>> getGameServers() {
-		return new ArrayList<>(gameServers);
+		return views.all;
 	}
 
 	public GameServerWrapper<?> getGameServer(String name) {
-		for (GameServerWrapper<?> gameServer : gameServers) {
-			if (gameServer.getName().equals(name)) return gameServer;
-		}
-		return null;
+		return name != null ? gameServers.get(name) : null;
 	}
 
+	/**
+	 * @return an immutable snapshot
+	 */
 	public List<Game> getGames() {
-		List<Game> games = new ArrayList<>();
-		for (GameServerWrapper<?> gameServer : gameServers) {
-			if (gameServer instanceof Game) {
-				games.add((Game) gameServer);
-			}
-		}
-		return games;
+		return views.games;
+	}
+
+	/**
+	 * Games players may be sent to when they first join.
+	 *
+	 * @return an immutable snapshot
+	 */
+	public List<Game> getInitialGames() {
+		return views.initialGames;
 	}
 
 	public Game getGame(String name) {
-		for (Game game : getGames()) {
-			if (game.getName().equals(name)) return game;
-		}
-		return null;
+		return getGameServer(name) instanceof Game game ? game : null;
 	}
 
 	public Proxy getProxy() {
-		for (GameServerWrapper<?> gameServer : gameServers) {
-			if (gameServer instanceof Proxy) {
-				return (Proxy) gameServer;
-			}
-		}
-		return null;
+		return views.proxy;
 	}
 
 	public GameServerWrapper<?> createWrapper(GameServer gameServer) {
@@ -86,4 +127,20 @@ public class GameServerManager {
 			case PROCESS -> new Process(gameServer);
 		};
 	}
+
+	private static class Views {
+		static final Views EMPTY = new Views(List.of(), List.of(), List.of(), null);
+
+		final List<GameServerWrapper<?>> all;
+		final List<Game> games;
+		final List<Game> initialGames;
+		final Proxy proxy;
+
+		Views(List<GameServerWrapper<?>> all, List<Game> games, List<Game> initialGames, Proxy proxy) {
+			this.all = all;
+			this.games = games;
+			this.initialGames = initialGames;
+			this.proxy = proxy;
+		}
+	}
 }
@@ -1,38 +1,171 @@
 package dev.kyriji.bmcmanager.controllers;
 
-import com.google.gson.Gson;
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
 import dev.kyriji.bigminecraftapi.enums.RedisChannel;
 import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bmcmanager.BMCManager;
+import dev.kyriji.bmcmanager.objects.GameServerWrapper;
+import dev.kyriji.bmcmanager.objects.RecoveredInstance;
+import dev.kyriji.bmcmanager.utils.InstanceCodec;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class InstanceManager {
-	private final Gson gson = new Gson();
+	// State each instance had in Redis before a warm restart, until its pod is rediscovered
+	private final Map<String, InstanceState> recoveredStates = new ConcurrentHashMap<>();
+
+	// Every instance in the GameServer wrappers' models, indexed for the message handlers
+	private final Map<String, Instance> instancesByUid = new ConcurrentHashMap<>();
+	private final KeyIndex uidsByIp = new KeyIndex();
+	private final KeyIndex uidsByPodName = new KeyIndex();
+	// UIDs each deployment contributed in its last published snapshot
+	private final Map<String, Set<String>> uidsByDeployment = new ConcurrentHashMap<>();
 
 	public InstanceManager() {
-		clearExistingData();
+		loadExistingData();
+		// Shutdowns of GameServers still settling at startup are picked up here too
+		BMCManager.shardCoordinator.addMembershipListener(ShutdownNegotiationManager.get()::handOver);
 	}
 
-	private void clearExistingData() {
-		RedisManager.get().clear();
+	private void loadExistingData() {
+		// Other live replicas are still using the shared state
+		boolean otherReplicas = !BMCManager.shardCoordinator.isOnlyMember();
+		if (!otherReplicas && !BMCManager.isWarmRestartEnabled()) {
+			RedisManager.get().clear();
+			return;
+		}
+
+		if (otherReplicas) System.out.println("Other manager replicas are live - keeping existing Redis data");
+
+		// Switched to the tagged layout - bring the old keys along before reading them
+		RedisManager.get().migrateLegacyKeys();
+
+		int shutdowns = 0;
+		List<RecoveredInstance> recovered = RedisManager.get().recoverInstances();
+		for (RecoveredInstance instance : recovered) {
+			if (instance.getState() != null) recoveredStates.put(instance.getUid(), instance.getState());
+
+			if (instance.hasPendingShutdown() && BMCManager.shardCoordinator.owns(instance.getDeployment())) {
+				ShutdownNegotiationManager.get().recoverShutdown(instance.getShutdownToken(), instance.getUid(),
+					instance.getDeployment(), instance.getShutdownReason(), instance.getBlockUntil());
+				shutdowns++;
+			}
+		}
+		System.out.println("Recovered " + recovered.size() + " instance(s) and " + shutdowns + " pending shutdown(s) from Redis");
 	}
 
 	public void registerInstance(Instance instance) {
+		// Rediscovered after a restart - keep the state it had rather than the pod's initial one,
+		// so a RUNNING instance stays routable and a DRAINING one keeps draining
+		InstanceState recoveredState = recoveredStates.remove(instance.getUid());
+		if (recoveredState != null) instance.setState(recoveredState);
+
 		System.out.println("Registering instance: " + instance.getUid());
+		GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(instance.getDeployment());
+		if (wrapper != null) {
+			// Written to Redis and announced behind the model
+			PodLabelManager.syncLbLabel(wrapper.putInstance(instance));
+			return;
+		}
+
 		RedisManager.get().updateInstance(instance);
 		PodLabelManager.syncLbLabel(instance);
-		RedisManager.get().publish(RedisChannel.INSTANCE_MODIFIED.getRef(), gson.toJson(instance));
+		RedisManager.get().publishAsync(RedisChannel.INSTANCE_MODIFIED.getRef(), InstanceCodec.toJson(instance));
+	}
+
+	/**
+	 * Drop Redis state for pods that went away while no manager was watching. Only safe once
+	 * the pod informers have synced - see {@link dev.kyriji.bmcmanager.tasks.InstanceDiscoveryTask}.
+	 *
+	 * @param liveUids UIDs of every pod that currently exists
+	 */
+	public void pruneOrphans(Set<String> liveUids) {
+		recoveredStates.keySet().retainAll(liveUids);
+
+		int pruned = RedisManager.get().pruneOrphans(liveUids, BMCManager.shardCoordinator::owns);
+		if (pruned > 0) {
+			System.out.println("Pruned " + pruned + " orphaned instance(s) from Redis");
+			RedisManager.get().publish(RedisChannel.INSTANCE_MODIFIED.getRef(), "");
+		}
 	}
 
 	public void unregisterInstance(String deploymentName, String uid) {
 		System.out.println("Unregistering instance: " + uid);
-		String key = "instance:" + uid + ":" + deploymentName;
-		RedisManager.get().hdelAll(key);
+		GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(deploymentName);
+		if (wrapper != null) {
+			wrapper.removeInstance(uid);
+			return;
+		}
+
+		unindex(uid);
+		RedisManager.get().removeInstance(uid, deploymentName);
 		RedisManager.get().publish(RedisChannel.INSTANCE_MODIFIED.getRef(), "");
 	}
 
+	/**
+	 * Set an instance's state in its GameServer's model, for callers that write the state to
+	 * Redis themselves. Write the instance returned - the one passed in may be shared with
+	 * published snapshots and is left unchanged.
+	 *
+	 * @return the instance with its new state, or null if it is already terminating and the state
+	 * is a live one
+	 */
+	public Instance applyState(Instance instance, InstanceState state) {
+		GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(instance.getDeployment());
+		if (wrapper != null) return wrapper.applyState(instance, state);
+
+		// No model holds it, so nothing else sees this object
+		if (!canTransition(instance.getState(), state)) return null;
+		instance.setState(state);
+		return instance;
+	}
+
+	/**
+	 * Flag the model of an instance's GameServer for a reload from Redis.
+	 */
+	public void markDrifted(Instance instance, String reason) {
+		GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(instance.getDeployment());
+		if (wrapper != null) wrapper.markDrifted(reason);
+	}
+
+	/**
+	 * Replace a deployment's indexed instances with the list its wrapper just published. Instances
+	 * no longer in the list are dropped from every index.
+	 */
+	public void indexInstances(String deployment, Collection<? extends Instance> instances) {
+		// Serialized per deployment, so two fetches landing together can't leave a mix of both
+		uidsByDeployment.compute(deployment, (name, previous) -> {
+			Set<String> current = new HashSet<>();
+			for (Instance instance : instances) {
+				index(instance);
+				current.add(instance.getUid());
+			}
+			if (previous != null) {
+				for (String uid : previous) {
+					if (!current.contains(uid)) unindex(uid);
+				}
+			}
+			return current.isEmpty() ? null : current;
+		});
+	}
+
+	private void index(Instance instance) {
+		Instance previous = instancesByUid.put(instance.getUid(), instance);
+		if (previous != null) {
+			if (!Objects.equals(previous.getIp(), instance.getIp())) uidsByIp.release(previous.getIp(), previous.getUid());
+			if (!Objects.equals(previous.getPodName(), instance.getPodName())) uidsByPodName.release(previous.getPodName(), previous.getUid());
+		}
+		uidsByIp.claim(instance.getIp(), instance.getUid());
+		uidsByPodName.claim(instance.getPodName(), instance.getUid());
+	}
+
+	private void unindex(String uid) {
+		Instance instance = instancesByUid.remove(uid);
+		if (instance == null) return;
+		uidsByIp.release(instance.getIp(), uid);
+		uidsByPodName.release(instance.getPodName(), uid);
+	}
 
 	public List<Instance> getInstances() {
 		List<Instance> instances = new ArrayList<>();
@@ -41,9 +174,99 @@ public class InstanceManager {
 	}
 
 	public Instance getFromIP(String ip) {
-		for (Instance instance : getInstances()) {
-			if (instance.getIp().equals(ip)) return instance;
+		return uidsByIp.get(ip);
+	}
+
+	public Instance getByUid(String uid) {
+		return uid != null ? instancesByUid.get(uid) : null;
+	}
+
+	public Instance getByPodName(String podName) {
+		return uidsByPodName.get(podName);
+	}
+
+	private static boolean isTerminating(Instance instance) {
+		return isTerminating(instance.getState());
+	}
+
+	private static boolean isTerminating(InstanceState state) {
+		return state == InstanceState.STOPPING || state == InstanceState.STOPPED;
+	}
+
+	/**
+	 * A STOPPING or STOPPED instance is never moved back to a live state - the same rule the
+	 * instance update script applies in Redis.
+	 */
+	public static boolean canTransition(InstanceState current, InstanceState next) {
+		return !isTerminating(current) || isTerminating(next);
+	}
+
+	/**
+	 * Pod IP or pod name -> UID of the instance holding it.
+	 *
+	 * Both get reused while the previous owner may still be indexed - a new pod can be handed a
+	 * terminating pod's IP, and a StatefulSet pod comes back under the same name. A live instance
+	 * takes a key over from a terminating one, otherwise the first holder keeps it; the others
+	 * wait, and one of them takes over when the holder is released.
+	 */
+	private class KeyIndex {
+		private final Map<String, Claim> claims = new ConcurrentHashMap<>();
+
+		Instance get(String key) {
+			if (key == null) return null;
+			Claim claim = claims.get(key);
+			return claim != null ? instancesByUid.get(claim.holder) : null;
+		}
+
+		void claim(String key, String uid) {
+			if (key == null) return;
+			claims.compute(key, (k, claim) -> {
+				if (claim == null) return new Claim(uid);
+				if (uid.equals(claim.holder)) return claim;
+
+				claim.waiting.remove(uid);
+				if (prefers(uid, claim.holder)) {
+					claim.waiting.add(claim.holder);
+					claim.holder = uid;
+				} else {
+					claim.waiting.add(uid);
+				}
+				return claim;
+			});
+		}
+
+		void release(String key, String uid) {
+			if (key == null) return;
+			claims.computeIfPresent(key, (k, claim) -> {
+				claim.waiting.remove(uid);
+				if (!uid.equals(claim.holder)) return claim;
+				if (claim.waiting.isEmpty()) return null;
+
+				String next = claim.waiting.get(0);
+				for (String candidate : claim.waiting) {
+					if (prefers(candidate, next)) next = candidate;
+				}
+				claim.waiting.remove(next);
+				claim.holder = next;
+				return claim;
+			});
+		}
+
+		private boolean prefers(String candidateUid, String holderUid) {
+			Instance holder = instancesByUid.get(holderUid);
+			if (holder == null) return true;
+			Instance candidate = instancesByUid.get(candidateUid);
+			return candidate != null && isTerminating(holder) && !isTerminating(candidate);
+		}
+	}
+
+	private static class Claim {
+		volatile String holder;
+		// Only touched inside the map's compute for this key
+		final List<String> waiting = new ArrayList<>(1);
+
+		Claim(String holder) {
+			this.holder = holder;
 		}
-		return null;
 	}
 }
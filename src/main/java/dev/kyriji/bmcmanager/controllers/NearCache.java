@@ -0,0 +1,272 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.Protocol;
+import redis.clients.jedis.exceptions.JedisDataException;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory copy of Redis reads that rarely change - instance hashes, deployment indexes and
+ * deployment flags - kept correct by Redis telling us when a key changes.
+ *
+ * Invalidations come from server-assisted client tracking in broadcast mode: the subscriber
+ * connection enables CLIENT TRACKING for the cached prefixes, redirected to itself, and then
+ * subscribes to __redis__:invalidate. On servers without tracking (before Redis 6) keyspace
+ * notifications are used instead, if notify-keyspace-events is configured for them.
+ *
+ * Nothing is served from memory unless the invalidation subscription is live. When it drops
+ * the cache is emptied, and a read that raced with an invalidation is not stored.
+ *
+ * Each Redis key is cached per "view" (the command and fields used to read it), bounded by key
+ * count and evicted least-recently-used.
+ */
+public class NearCache implements MetricsSource {
+	private static final String INVALIDATE_CHANNEL = "__redis__:invalidate";
+	private static final String KEYSPACE_PREFIX = "__keyspace@";
+	private static final long RECONNECT_DELAY_MS = 1000;
+	private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+	// Returned by get() when the key is not cached
+	public static final Object MISS = new Object();
+	// Cached absence, as opposed to a miss
+	private static final Object NULL = new Object();
+
+	private final String[] prefixes;
+	private final int maxKeys;
+	private final Map<String, Map<String, Object>> entries;
+	// Bumped on every invalidation - a read that started before it must not be stored
+	private final AtomicLong generation = new AtomicLong();
+
+	private final LongAdder hits = new LongAdder();
+	private final LongAdder misses = new LongAdder();
+	private final LongAdder invalidations = new LongAdder();
+	private final LongAdder evictions = new LongAdder();
+
+	private final JedisPubSub invalidationListener = new JedisPubSub() {
+		@Override
+		public void onSubscribe(String channel, int subscribedChannels) {
+			activate();
+		}
+
+		@Override
+		public void onPSubscribe(String pattern, int subscribedChannels) {
+			activate();
+		}
+
+		@Override
+		public void onMessage(String channel, String key) {
+			// A null key means the whole keyspace was flushed
+			if (key == null) invalidateAll();
+			else invalidate(key);
+		}
+
+		@Override
+		public void onPMessage(String pattern, String channel, String event) {
+			// __keyspace@<db>__:<key>
+			int separator = channel.indexOf("__:", KEYSPACE_PREFIX.length());
+			if (separator >= 0) invalidate(channel.substring(separator + 3));
+		}
+	};
+
+	private volatile boolean active;
+	private volatile boolean running;
+	// Why invalidations can't be received from this server, once listen() has found out
+	private String unavailable;
+	private Thread listenerThread;
+
+	public NearCache(int maxKeys, String... prefixes) {
+		this.maxKeys = maxKeys;
+		this.prefixes = prefixes;
+		this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+			@Override
+			protected boolean removeEldestEntry(Map.Entry<String, Map<String, Object>> eldest) {
+				if (size() <= NearCache.this.maxKeys) return false;
+				evictions.increment();
+				return true;
+			}
+		};
+	}
+
+	public void start() {
+		// Invalidations would have to be tracked on every node
+		if (RedisManager.get().isCluster()) {
+			System.err.println("Near cache disabled: not supported with Redis Cluster");
+			return;
+		}
+
+		running = true;
+		listenerThread = new Thread(() -> {
+			long delay = RECONNECT_DELAY_MS;
+			while (running) {
+				try {
+					RedisManager.get().withConnection(this::listen);
+					delay = RECONNECT_DELAY_MS;
+				} catch (Exception e) {
+					if (!running) break;
+					System.err.println("Near cache invalidations lost: " + e.getMessage() + " - reconnecting in " + delay + "ms");
+				} finally {
+					deactivate();
+				}
+
+				if (unavailable != null) {
+					System.err.println("Near cache disabled: " + unavailable);
+					return;
+				}
+
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					break;
+				}
+				delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+			}
+		}, "redis-near-cache");
+		listenerThread.start();
+	}
+
+	private void listen(Jedis jedis) {
+		long clientId = jedis.clientId();
+
+		List<String> tracking = new ArrayList<>(List.of("TRACKING", "ON", "REDIRECT", Long.toString(clientId), "BCAST"));
+		for (String prefix : prefixes) {
+			tracking.add("PREFIX");
+			tracking.add(prefix);
+		}
+
+		try {
+			jedis.sendCommand(Protocol.Command.CLIENT, tracking.toArray(new String[0]));
+		} catch (JedisDataException e) {
+			listenForKeyspaceEvents(jedis, e);
+			return;
+		}
+
+		System.out.println("Near cache tracking " + prefixes.length + " key prefix(es) through client tracking");
+		jedis.subscribe(invalidationListener, INVALIDATE_CHANNEL);
+	}
+
+	private void listenForKeyspaceEvents(Jedis jedis, JedisDataException trackingError) {
+		String flags = jedis.configGet("notify-keyspace-events").getOrDefault("notify-keyspace-events", "");
+		boolean allEvents = flags.contains("A") || "ghsxe".chars().allMatch(c -> flags.indexOf(c) >= 0);
+		if (!flags.contains("K") || !allEvents) {
+			unavailable = "client tracking unavailable (" + trackingError.getMessage() +
+				") and notify-keyspace-events '" + flags + "' does not cover keyspace events";
+			return;
+		}
+
+		String[] patterns = new String[prefixes.length];
+		for (int i = 0; i < prefixes.length; i++) {
+			patterns[i] = KEYSPACE_PREFIX + "*__:" + prefixes[i] + "*";
+		}
+
+		System.out.println("Near cache tracking " + prefixes.length + " key prefix(es) through keyspace notifications");
+		jedis.psubscribe(invalidationListener, patterns);
+	}
+
+	public boolean isCacheable(String key) {
+		if (!active) return false;
+		for (String prefix : prefixes) {
+			if (key.startsWith(prefix)) return true;
+		}
+		return false;
+	}
+
+	/**
+	 * Start a read that may be stored. Pass the result to {@link #put}.
+	 */
+	public long beginRead() {
+		return generation.get();
+	}
+
+	/**
+	 * @return the cached value (possibly null), or {@link #MISS}
+	 */
+	public Object get(String key, String view) {
+		Object value;
+		synchronized (entries) {
+			Map<String, Object> views = entries.get(key);
+			value = views != null ? views.get(view) : null;
+		}
+
+		if (value == null) {
+			misses.increment();
+			return MISS;
+		}
+		hits.increment();
+		return value == NULL ? null : value;
+	}
+
+	public void put(String key, String view, Object value, long readGeneration) {
+		synchronized (entries) {
+			// Invalidated while the value was being read - it may already be stale
+			if (!active || generation.get() != readGeneration) return;
+			entries.computeIfAbsent(key, k -> new HashMap<>(2)).put(view, value == null ? NULL : value);
+		}
+	}
+
+	public void invalidate(String key) {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			if (entries.remove(key) != null) invalidations.increment();
+		}
+	}
+
+	public void invalidateAll() {
+		synchronized (entries) {
+			generation.incrementAndGet();
+			invalidations.add(entries.size());
+			entries.clear();
+		}
+	}
+
+	private void activate() {
+		invalidateAll();
+		active = true;
+	}
+
+	private void deactivate() {
+		active = false;
+		invalidateAll();
+	}
+
+	public void shutdown() {
+		running = false;
+		if (invalidationListener.isSubscribed()) invalidationListener.unsubscribe();
+		if (listenerThread != null) listenerThread.interrupt();
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		int size;
+		synchronized (entries) {
+			size = entries.size();
+		}
+
+		out.append("# HELP bmc_near_cache_hits_total Redis reads served from the near cache.\n");
+		out.append("# TYPE bmc_near_cache_hits_total counter\n");
+		out.append("bmc_near_cache_hits_total ").append(hits.sum()).append('\n');
+
+		out.append("# HELP bmc_near_cache_misses_total Redis reads that went to Redis.\n");
+		out.append("# TYPE bmc_near_cache_misses_total counter\n");
+		out.append("bmc_near_cache_misses_total ").append(misses.sum()).append('\n');
+
+		out.append("# HELP bmc_near_cache_invalidations_total Cached keys dropped because they changed in Redis.\n");
+		out.append("# TYPE bmc_near_cache_invalidations_total counter\n");
+		out.append("bmc_near_cache_invalidations_total ").append(invalidations.sum()).append('\n');
+
+		out.append("# HELP bmc_near_cache_evictions_total Cached keys dropped to stay within the size bound.\n");
+		out.append("# TYPE bmc_near_cache_evictions_total counter\n");
+		out.append("bmc_near_cache_evictions_total ").append(evictions.sum()).append('\n');
+
+		out.append("# HELP bmc_near_cache_keys Keys currently cached.\n");
+		out.append("# TYPE bmc_near_cache_keys gauge\n");
+		out.append("bmc_near_cache_keys ").append(size).append('\n');
+
+		out.append("# HELP bmc_near_cache_active Whether invalidations are live and the cache is serving reads.\n");
+		out.append("# TYPE bmc_near_cache_active gauge\n");
+		out.append("bmc_near_cache_active ").append(active ? 1 : 0).append('\n');
+	}
+}
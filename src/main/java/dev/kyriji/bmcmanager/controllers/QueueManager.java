@@ -1,6 +1,7 @@
 package dev.kyriji.bmcmanager.controllers;
 
 import dev.kyriji.bmcmanager.enums.QueueStrategy;
+import dev.kyriji.bmcmanager.objects.CountedMinecraftInstance;
 import dev.kyriji.bmcmanager.objects.Game;
 import dev.kyriji.bigminecraftapi.enums.InstanceState;
 import dev.kyriji.bigminecraftapi.enums.RedisChannel;
@@ -46,7 +47,7 @@ public class QueueManager {
 			case FILL -> findFillInstance(game);
 		};
 
-		System.out.println("Selected instance: " + (result != null ? result.getName() + " (players: " + result.getPlayers().size() + ", pending: " + getReservationCount(result.getUid()) + ")" : "null"));
+		System.out.println("Selected instance: " + (result != null ? result.getName() + " (players: " + CountedMinecraftInstance.playerCount(result) + ", pending: " + getReservationCount(result.getUid()) + ")" : "null"));
 		System.out.println("=== END QUEUE DEBUG ===\n");
 
 		return result;
@@ -60,7 +61,7 @@ public class QueueManager {
 		System.out.println("SPREAD: Evaluating " + instances.size() + " instances (looking for LOWEST player count):");
 
 		for (MinecraftInstance instance : instances) {
-			int playerCount = instance.getPlayers().size();
+			int playerCount = CountedMinecraftInstance.playerCount(instance);
 			int pendingCount = getReservationCount(instance.getUid());
 			int effectiveCount = playerCount + pendingCount;
 			int maxPlayers = game.getScalingSettings().maxPlayers;
@@ -93,7 +94,7 @@ public class QueueManager {
 		System.out.println("FILL: Evaluating " + instances.size() + " instances (looking for HIGHEST player count with room):");
 
 		for (MinecraftInstance instance : instances) {
-			int playerCount = instance.getPlayers().size();
+			int playerCount = CountedMinecraftInstance.playerCount(instance);
 			int pendingCount = getReservationCount(instance.getUid());
 			int effectiveCount = playerCount + pendingCount;
 			int maxPlayers = game.getScalingSettings().maxPlayers;
@@ -1,41 +1,183 @@
 package dev.kyriji.bmcmanager.controllers;
 
-import com.google.gson.Gson;
-import com.google.gson.reflect.TypeToken;
 import dev.kyriji.bigminecraftapi.enums.InstanceState;
 import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+import dev.kyriji.bmcmanager.enums.KeyLayout;
+import dev.kyriji.bmcmanager.objects.CountedMinecraftInstance;
+import dev.kyriji.bmcmanager.objects.RecoveredInstance;
+import dev.kyriji.bmcmanager.utils.InstanceCodec;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.ConnectionPool;
+import redis.clients.jedis.ConnectionPoolConfig;
+import redis.clients.jedis.HostAndPort;
 import redis.clients.jedis.Jedis;
-import redis.clients.jedis.JedisPool;
-import redis.clients.jedis.JedisPoolConfig;
+import redis.clients.jedis.JedisCluster;
+import redis.clients.jedis.JedisPooled;
 import redis.clients.jedis.JedisPubSub;
+import redis.clients.jedis.JedisShardedPubSub;
+import redis.clients.jedis.Response;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.exceptions.JedisNoScriptException;
 import redis.clients.jedis.params.ScanParams;
+import redis.clients.jedis.params.XAddParams;
 import redis.clients.jedis.resps.ScanResult;
 
-import java.lang.reflect.Type;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.function.Consumer;
+import java.util.function.Predicate;
 
 public class RedisManager {
-	private static RedisManager instance;
-	private final JedisPool jedisPool;
+	private static final String INSTANCE_PREFIX = "instance:";
+	// Set of instance keys per deployment, so a deployment's instances can be read without a keyspace SCAN
+	private static final String INSTANCE_INDEX_PREFIX = "instances:";
+	// Player roster per instance (player UUID -> name), kept apart from the instance hash
+	private static final String ROSTER_PREFIX = "roster:";
+	// Per-deployment settings hash (enabled flag), written by the API
+	private static final String DEPLOYMENT_PREFIX = "deployment:";
+	private static final String[] INSTANCE_FIELDS = {"uid", "name", "podName", "ip", "deployment", "state", "playerCount"};
+	// Read from every instance hash on a warm restart
+	private static final String[] RECOVERY_FIELDS = {"uid", "deployment", "state", "shutdown_token", "shutdown_reason", "block_until"};
+	private static final int SCAN_COUNT = 1000;
+	private static final int UNLINK_BATCH = 500;
+	// Event stream per channel, read through a consumer group when EVENT_TRANSPORT=streams
+	private static final String STREAM_PREFIX = "stream:";
+	// Hash tag shared by every event stream, so one XREADGROUP can cover them all on a cluster
+	private static final String STREAM_TAG = "{events}:";
+	public static final String STREAM_MESSAGE_FIELD = "message";
+
+	private static final LuaScript UPDATE_INSTANCE_SCRIPT = new LuaScript(
+		"local existing = redis.call('HGET', KEYS[1], 'state')\n" +
+		"if (existing == 'STOPPING' or existing == 'STOPPED') and ARGV[1] ~= 'STOPPING' and ARGV[1] ~= 'STOPPED' then\n" +
+		"  return 0\n" +
+		"end\n" +
+		"redis.call('HSET', KEYS[1], unpack(ARGV, 3))\n" +
+		"if ARGV[2] == '1' then\n" +
+		"  redis.call('HSETNX', KEYS[1], 'playerCount', 0)\n" +
+		"  redis.call('HSETNX', KEYS[1], 'players', '{}')\n" +
+		"end\n" +
+		"redis.call('SADD', KEYS[2], KEYS[1])\n" +
+		"return 1\n");
+
+	// KEYS: instance index, then the instance hashes it lists that looked gone. Only removes those
+	// still gone, so a hash written again since it was read keeps its index entry
+	private static final LuaScript PRUNE_INDEX_SCRIPT = new LuaScript(
+		"local removed = 0\n" +
+		"for i = 2, #KEYS do\n" +
+		"  if redis.call('EXISTS', KEYS[i]) == 0 then\n" +
+		"    removed = removed + redis.call('SREM', KEYS[1], KEYS[i])\n" +
+		"  end\n" +
+		"end\n" +
+		"return removed\n");
+
+	// Rebuilds the legacy players JSON field that API clients still read, from the roster hash
+	private static final String MIRROR_ROSTER =
+		"local function mirror()\n" +
+		"  local roster = redis.call('HGETALL', KEYS[2])\n" +
+		"  if #roster == 0 then\n" +
+		"    redis.call('HSET', KEYS[1], 'players', '{}')\n" +
+		"    return\n" +
+		"  end\n" +
+		"  local players = {}\n" +
+		"  for i = 1, #roster, 2 do players[roster[i]] = roster[i + 1] end\n" +
+		"  redis.call('HSET', KEYS[1], 'players', cjson.encode(players))\n" +
+		"end\n";
+
+	// KEYS: instance hash, roster hash. ARGV: player UUID, name, mirror flag. Returns the new count, -1 if the instance is gone
+	private static final LuaScript ADD_PLAYER_SCRIPT = new LuaScript(MIRROR_ROSTER +
+		"if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+		"local added = redis.call('HSET', KEYS[2], ARGV[1], ARGV[2])\n" +
+		"local count\n" +
+		"if added == 1 then\n" +
+		"  count = redis.call('HINCRBY', KEYS[1], 'playerCount', 1)\n" +
+		"else\n" +
+		"  count = tonumber(redis.call('HGET', KEYS[1], 'playerCount') or '0')\n" +
+		"end\n" +
+		"if ARGV[3] == '1' then mirror() end\n" +
+		"return count\n");
+
+	// KEYS: instance hash, roster hash. ARGV: player UUID, mirror flag. Returns the new count, -1 if the instance is gone
+	private static final LuaScript REMOVE_PLAYER_SCRIPT = new LuaScript(MIRROR_ROSTER +
+		"if redis.call('EXISTS', KEYS[1]) == 0 then return -1 end\n" +
+		"local removed = redis.call('HDEL', KEYS[2], ARGV[1])\n" +
+		"if removed == 0 then\n" +
+		"  return tonumber(redis.call('HGET', KEYS[1], 'playerCount') or '0')\n" +
+		"end\n" +
+		"local count = redis.call('HINCRBY', KEYS[1], 'playerCount', -1)\n" +
+		"if ARGV[2] == '1' then mirror() end\n" +
+		"return count\n");
 
-	private RedisManager(String redisHost, int redisPort, int maxConnections) {
-		JedisPoolConfig poolConfig = new JedisPoolConfig();
+	private static RedisManager instance;
+	// Fixed at init, before any key is built
+	private static volatile KeyLayout keyLayout = KeyLayout.LEGACY;
+	// JedisPooled for a single server, JedisCluster for a cluster
+	private final UnifiedJedis redis;
+	// Publish and subscribe with SPUBLISH/SSUBSCRIBE, so a message only touches its channel's shard
+	private final boolean shardedPubSub;
+	// Keep the players JSON field in step for API clients that read rosters from the instance hash.
+	// On by default - the bundled API still reads only this field, not the roster or playerCount.
+	private final boolean mirrorLegacyPlayers;
+	// Approximate cap on each event stream; 0 while events only go over pub/sub
+	private volatile long streamMaxLen;
+	// Null unless NEAR_CACHE_SIZE is above 0
+	private volatile NearCache nearCache;
+	private final WriteCoalescer writeCoalescer;
+
+	private RedisManager(String redisHost, int redisPort, List<String> clusterNodes, int maxConnections,
+	                     boolean shardedPubSub, boolean mirrorLegacyPlayers, long writeWindowMs) {
+		this.shardedPubSub = shardedPubSub;
+		this.mirrorLegacyPlayers = mirrorLegacyPlayers;
+		this.writeCoalescer = new WriteCoalescer(writeWindowMs);
+
+		// Per node when clustered
+		ConnectionPoolConfig poolConfig = new ConnectionPoolConfig();
 		poolConfig.setMaxTotal(maxConnections);
 		poolConfig.setMaxIdle(maxConnections / 4);
 		poolConfig.setMinIdle(1);
 		poolConfig.setMaxWait(Duration.ofSeconds(30));
 
-		this.jedisPool = new JedisPool(poolConfig, redisHost, redisPort);
+		if (clusterNodes.isEmpty()) {
+			this.redis = new JedisPooled(poolConfig, redisHost, redisPort);
+		} else {
+			Set<HostAndPort> nodes = new HashSet<>();
+			for (String node : clusterNodes) {
+				nodes.add(HostAndPort.from(node));
+			}
+			this.redis = new JedisCluster(nodes, poolConfig);
+			System.out.println("Using Redis Cluster through " + nodes.size() + " seed node(s)");
+		}
+
 		testConnection();
+		// Scripts run on whichever node owns their keys, so load them everywhere up front
+		forEachNode(jedis -> {
+			UPDATE_INSTANCE_SCRIPT.load(jedis);
+			ADD_PLAYER_SCRIPT.load(jedis);
+			REMOVE_PLAYER_SCRIPT.load(jedis);
+			PRUNE_INDEX_SCRIPT.load(jedis);
+		});
+		writeCoalescer.start();
 	}
 
-	public static void init(String redisHost, int redisPort) {
+	/**
+	 * @param clusterNodes host:port seeds of a Redis Cluster, or empty to use the single server at redisHost
+	 * @param layout how instance keys are named - must be {@link KeyLayout#TAGGED} on a cluster
+	 */
+	public static void init(String redisHost, int redisPort, List<String> clusterNodes, KeyLayout layout,
+	                        boolean shardedPubSub, boolean mirrorLegacyPlayers, long writeWindowMs) {
 		synchronized (RedisManager.class) {
 			if (instance != null) return;
-			instance = new RedisManager(redisHost, redisPort, 25);
+			if (!clusterNodes.isEmpty() && layout != KeyLayout.TAGGED) {
+				// A deployment's index and its instance hashes must share a slot for the scripts to run
+				throw new IllegalStateException("Redis Cluster requires REDIS_KEY_LAYOUT=tagged");
+			}
+			keyLayout = layout;
+			instance = new RedisManager(redisHost, redisPort, clusterNodes, 25, shardedPubSub, mirrorLegacyPlayers, writeWindowMs);
 		}
 	}
 
@@ -45,7 +187,7 @@ public class RedisManager {
 	}
 
 	private void testConnection() {
-		withRedis(jedis -> {
+		forEachNode(jedis -> {
 			String pong = jedis.ping();
 			if (!"PONG".equals(pong)) {
 				System.out.println("Failed to connect to Redis");
@@ -53,165 +195,773 @@ public class RedisManager {
 		});
 	}
 
-	public void withRedis(Consumer<Jedis> jedisConsumer) {
-		try (Jedis jedis = jedisPool.getResource()) {
+	/**
+	 * Pooled client - each command borrows a connection, and on a cluster is routed to the node
+	 * owning its key. Pipelines from {@link UnifiedJedis#pipelined()} hold a connection until closed.
+	 */
+	public void withRedis(Consumer<UnifiedJedis> redisConsumer) {
+		redisConsumer.accept(redis);
+	}
+
+	/**
+	 * A connection of its own, for connection-level state (client tracking, blocking subscribes).
+	 * Only available against a single server - check {@link #isCluster()} first.
+	 */
+	public void withConnection(Consumer<Jedis> jedisConsumer) {
+		if (!(redis instanceof JedisPooled pooled)) {
+			throw new IllegalStateException("a dedicated connection needs a single Redis server, not a cluster");
+		}
+		try (Jedis jedis = new Jedis(pooled.getPool().getResource())) {
 			jedisConsumer.accept(jedis);
 		}
 	}
 
+	/**
+	 * Run against every master: the single server, or each primary of the cluster.
+	 */
+	private void forEachNode(Consumer<Jedis> jedisConsumer) {
+		if (!(redis instanceof JedisCluster cluster)) {
+			withConnection(jedisConsumer);
+			return;
+		}
+
+		for (ConnectionPool pool : cluster.getClusterNodes().values()) {
+			try (Jedis jedis = new Jedis(pool.getResource())) {
+				// Replicas only hold copies of their primary's keys
+				if (jedis.info("replication").contains("role:slave")) continue;
+				jedisConsumer.accept(jedis);
+			}
+		}
+	}
+
+	/**
+	 * SCAN every master for keys matching the pattern, handing over one page at a time.
+	 */
+	private void scanKeys(String pattern, Consumer<List<String>> page) {
+		forEachNode(jedis -> {
+			String cursor = "0";
+			do {
+				ScanResult<String> scanResult = jedis.scan(cursor, new ScanParams().match(pattern).count(SCAN_COUNT));
+				cursor = scanResult.getCursor();
+				if (!scanResult.getResult().isEmpty()) page.accept(scanResult.getResult());
+			} while (!cursor.equals("0"));
+		});
+	}
+
+	public boolean isCluster() {
+		return redis instanceof JedisCluster;
+	}
+
+	public boolean isShardedPubSub() {
+		return shardedPubSub;
+	}
+
+	/**
+	 * Whether a publish can share a pipeline with key writes. A cluster pipeline only carries
+	 * keyed commands, and SPUBLISH is routed by channel, so both publish on their own.
+	 */
+	boolean canPipelinePublishes() {
+		return !isCluster() && !shardedPubSub;
+	}
+
+	/**
+	 * Serve instance hashes, instance indexes and deployment flags from memory while they are
+	 * unchanged in Redis. Not available on a cluster, where invalidations would have to be
+	 * tracked per node.
+	 *
+	 * @return the cache, or null if it cannot be enabled
+	 */
+	public NearCache enableNearCache(int maxKeys) {
+		if (isCluster()) {
+			System.out.println("Near cache disabled: not supported with Redis Cluster");
+			return null;
+		}
+
+		NearCache cache = new NearCache(maxKeys, INSTANCE_PREFIX, INSTANCE_INDEX_PREFIX, DEPLOYMENT_PREFIX);
+		cache.start();
+		this.nearCache = cache;
+		return cache;
+	}
+
+	// Our own writes are dropped right away rather than when Redis reports them
+	void invalidateCached(String... keys) {
+		NearCache cache = nearCache;
+		if (cache == null) return;
+		for (String key : keys) {
+			cache.invalidate(key);
+		}
+	}
+
+	private void invalidateAllCached() {
+		NearCache cache = nearCache;
+		if (cache != null) cache.invalidateAll();
+	}
+
 	public void hset(String key, String field, String value) {
-		withRedis(jedis -> jedis.hset(key, field, value));
+		redis.hset(key, field, value);
+		invalidateCached(key);
 	}
 
 	public String hget(String key, String field) {
-		try (Jedis jedis = jedisPool.getResource()) {
-			return jedis.hget(key, field);
+		NearCache cache = nearCache;
+		boolean cacheable = cache != null && cache.isCacheable(key);
+		String view = "hget:" + field;
+		if (cacheable) {
+			Object cached = cache.get(key, view);
+			if (cached != NearCache.MISS) return (String) cached;
 		}
-	}
 
-	public void hdelAll(String key) {
-		withRedis(jedis -> {
-			Set<String> fields = jedis.hkeys(key);
-			if (!fields.isEmpty()) {
-				jedis.hdel(key, fields.toArray(new String[0]));
-			}
-		});
+		long readGeneration = cacheable ? cache.beginRead() : 0;
+		String value = redis.hget(key, field);
+		if (cacheable) cache.put(key, view, value, readGeneration);
+		return value;
 	}
 
 	public void publish(String channel, String message) {
-		withRedis(jedis -> jedis.publish(channel, message));
+		if (shardedPubSub) redis.spublish(channel, message);
+		else redis.publish(channel, message);
+	}
+
+	/**
+	 * Queue hash fields to be written with the next batch - see {@link WriteCoalescer}.
+	 */
+	public CompletableFuture<Void> hsetAsync(String key, Map<String, String> fields) {
+		return writeCoalescer.hset(key, fields);
+	}
+
+	public CompletableFuture<Void> hdelAsync(String key, String... fields) {
+		return writeCoalescer.hdel(key, fields);
+	}
+
+	/**
+	 * Queue a publish for the next batch. It is sent after the batch's hash writes, so it can
+	 * announce data queued just before it.
+	 */
+	public CompletableFuture<Void> publishAsync(String channel, String message) {
+		return writeCoalescer.publish(channel, message);
+	}
+
+	public WriteCoalescer getWriteCoalescer() {
+		return writeCoalescer;
+	}
+
+	/**
+	 * Publish an event the manager itself consumes. Once streams are enabled it is also appended
+	 * to the channel's stream, so it survives a manager restart or a dropped connection.
+	 */
+	public void publishEvent(String channel, String message) {
+		long maxLen = streamMaxLen;
+		if (maxLen <= 0) {
+			publish(channel, message);
+			return;
+		}
+
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			pipeline.xadd(streamKey(channel), XAddParams.xAddParams().maxLen(maxLen).approximateTrimming(),
+				Map.of(STREAM_MESSAGE_FIELD, message));
+			if (canPipelinePublishes()) pipeline.publish(channel, message);
+			pipeline.sync();
+		}
+		if (!canPipelinePublishes()) publish(channel, message);
+	}
+
+	public void enableEventStreams(long maxLen) {
+		this.streamMaxLen = maxLen;
 	}
 
 	public void subscribe(JedisPubSub jedisPubSub, String... channels) {
-		withRedis(jedis -> jedis.subscribe(jedisPubSub, channels));
+		redis.subscribe(jedisPubSub, channels);
+	}
+
+	/**
+	 * Sharded subscribe. On a cluster every channel must hash to the same slot.
+	 */
+	public void ssubscribe(JedisShardedPubSub jedisPubSub, String... channels) {
+		redis.ssubscribe(jedisPubSub, channels);
 	}
 
+	public static String streamKey(String channel) {
+		if (keyLayout == KeyLayout.TAGGED) return STREAM_PREFIX + STREAM_TAG + channel;
+		return STREAM_PREFIX + channel;
+	}
+
+	public static String instanceKey(String uid, String deployment) {
+		return podKey(INSTANCE_PREFIX, uid, deployment);
+	}
+
+	public static String instanceIndexKey(String deployment) {
+		if (keyLayout == KeyLayout.TAGGED) return INSTANCE_INDEX_PREFIX + "{" + deployment + "}";
+		return INSTANCE_INDEX_PREFIX + deployment;
+	}
+
+	public static String rosterKey(String uid, String deployment) {
+		return podKey(ROSTER_PREFIX, uid, deployment);
+	}
+
+	// <prefix><uid>:<deployment>, or <prefix>{<deployment>}:<uid> when tagged
+	private static String podKey(String prefix, String uid, String deployment) {
+		if (keyLayout == KeyLayout.TAGGED) return prefix + "{" + deployment + "}:" + uid;
+		return prefix + uid + ":" + deployment;
+	}
+
+	/**
+	 * Split an instance or roster key into its uid and deployment, whichever layout it uses.
+	 *
+	 * @return {uid, deployment}, or null if the key is not in either layout
+	 */
+	private static String[] parsePodKey(String prefix, String key) {
+		if (!key.startsWith(prefix)) return null;
+
+		if (isTagged(prefix, key)) {
+			int close = key.indexOf("}:", prefix.length());
+			if (close < 0) return null;
+			return new String[]{key.substring(close + 2), key.substring(prefix.length() + 1, close)};
+		}
+
+		int separator = key.indexOf(':', prefix.length());
+		if (separator < 0) return null;
+		return new String[]{key.substring(prefix.length(), separator), key.substring(separator + 1)};
+	}
+
+	private static boolean isTagged(String prefix, String key) {
+		return key.startsWith("{", prefix.length());
+	}
+
+	// Pattern matching only keys of the layout in use
+	private static String scanPattern(String prefix) {
+		return keyLayout == KeyLayout.TAGGED ? prefix + "{*" : prefix + "*";
+	}
+
+	/**
+	 * Delete every instance hash, index and roster - a cold start. SCANned and UNLINKed a page
+	 * at a time rather than with KEYS and one large DEL.
+	 */
 	public void clear() {
-		withRedis(jedis -> {
-			Set<String> keys = jedis.keys("instance:*");
-			if (keys != null && !keys.isEmpty()) {
-				jedis.del(keys.toArray(new String[0]));
+		for (String prefix : new String[]{INSTANCE_PREFIX, INSTANCE_INDEX_PREFIX, ROSTER_PREFIX}) {
+			scanKeys(prefix + "*", this::unlink);
+		}
+		invalidateAllCached();
+	}
+
+	// One UNLINK per key - a multi-key UNLINK is rejected when the keys span cluster slots
+	private void unlink(Collection<String> keys) {
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			for (String key : keys) {
+				pipeline.unlink(key);
+			}
+			pipeline.sync();
+		}
+	}
+
+	/**
+	 * Move instance hashes and rosters written in the legacy layout to the tagged one, so a
+	 * manager switched to REDIS_KEY_LAYOUT=tagged keeps the fleet state it already had. Each key
+	 * is copied with DUMP and RESTORE and the old one unlinked. Legacy deployment indexes are
+	 * dropped; {@link #recoverInstances} rebuilds them under the new names.
+	 *
+	 * Safe to run again - a key already present in the tagged layout is kept as it is.
+	 *
+	 * @return number of keys moved
+	 */
+	public int migrateLegacyKeys() {
+		if (keyLayout != KeyLayout.TAGGED) return 0;
+
+		int[] moved = {0};
+		for (String prefix : new String[]{INSTANCE_PREFIX, ROSTER_PREFIX}) {
+			scanKeys(prefix + "*", page -> {
+				List<String> migrated = new ArrayList<>();
+				for (String key : page) {
+					if (isTagged(prefix, key)) continue;
+					String[] parts = parsePodKey(prefix, key);
+					if (parts == null) continue;
+
+					byte[] dump = redis.dump(key);
+					// Removed since the SCAN
+					if (dump == null) continue;
+					try {
+						redis.restore(podKey(prefix, parts[0], parts[1]), 0, dump);
+					} catch (JedisDataException e) {
+						// BUSYKEY - written by a newer manager already, which wins
+						if (!e.getMessage().startsWith("BUSYKEY")) throw e;
+					}
+					migrated.add(key);
+				}
+				if (migrated.isEmpty()) return;
+				unlink(migrated);
+				moved[0] += migrated.size();
+			});
+		}
+
+		scanKeys(INSTANCE_INDEX_PREFIX + "*", page -> {
+			List<String> legacyIndexes = new ArrayList<>();
+			for (String key : page) {
+				if (!isTagged(INSTANCE_INDEX_PREFIX, key)) legacyIndexes.add(key);
 			}
+			if (!legacyIndexes.isEmpty()) unlink(legacyIndexes);
 		});
+
+		invalidateAllCached();
+		if (moved[0] > 0) System.out.println("Migrated " + moved[0] + " key(s) to the tagged Redis key layout");
+		return moved[0];
 	}
 
-	public void updateInstance(Instance instance) {
-		String key = "instance:" + instance.getUid() + ":" + instance.getDeployment();
+	/**
+	 * Load what a previous manager run left in Redis: every instance hash, with its state and
+	 * any pending shutdown metadata. Each hash is also added to its deployment's index, which
+	 * backfills data written before the indexes existed.
+	 *
+	 * Walks the keyspace with SCAN, one pipelined batch per page, so Redis is never blocked.
+	 */
+	public List<RecoveredInstance> recoverInstances() {
+		List<RecoveredInstance> recovered = new ArrayList<>();
+		scanKeys(scanPattern(INSTANCE_PREFIX), keys -> {
+			List<Response<List<String>>> responses = new ArrayList<>(keys.size());
+			try (AbstractPipeline pipeline = redis.pipelined()) {
+				for (String key : keys) {
+					String[] parts = parsePodKey(INSTANCE_PREFIX, key);
+					// The other layout's keys - left for migrateLegacyKeys
+					if (parts == null || !key.equals(instanceKey(parts[0], parts[1]))) continue;
+					pipeline.sadd(instanceIndexKey(parts[1]), key);
+					responses.add(pipeline.hmget(key, RECOVERY_FIELDS));
+				}
+				pipeline.sync();
+			}
 
-		// Check if instance already exists with a terminal state - don't overwrite STOPPING/STOPPED
-		// This prevents race conditions where discovery re-registers a dying instance
-		String existingState = hget(key, "state");
-		if (existingState != null) {
-			InstanceState existing = null;
-			try {
-				existing = InstanceState.valueOf(existingState);
-			} catch (IllegalArgumentException ignored) {}
-
-			if (existing == InstanceState.STOPPING || existing == InstanceState.STOPPED) {
-				InstanceState newState = instance.getState();
-				// Only allow updates that keep or advance the terminal state
-				if (newState != InstanceState.STOPPING && newState != InstanceState.STOPPED) {
-					System.out.println("Ignoring state update for " + instance.getName() +
-						": cannot change from " + existing + " to " + newState);
-					return;
+			for (Response<List<String>> response : responses) {
+				List<String> fields;
+				try {
+					fields = response.get();
+				} catch (Exception e) {
+					// WRONGTYPE - not an instance hash
+					continue;
 				}
+				RecoveredInstance instance = toRecovered(fields);
+				if (instance != null) recovered.add(instance);
+			}
+		});
+		invalidateAllCached();
+		return recovered;
+	}
+
+	/**
+	 * The instances of a deployment with a shutdown proposed and not yet finished, from the
+	 * shutdown metadata on their hashes. One SMEMBERS and one pipelined batch.
+	 */
+	public List<RecoveredInstance> getPendingShutdowns(String deployment) {
+		List<RecoveredInstance> pending = new ArrayList<>();
+		Set<String> keys = redis.smembers(instanceIndexKey(deployment));
+		if (keys.isEmpty()) return pending;
+
+		List<Response<List<String>>> responses = new ArrayList<>(keys.size());
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			for (String key : keys) {
+				responses.add(pipeline.hmget(key, RECOVERY_FIELDS));
+			}
+			pipeline.sync();
+		}
+
+		for (Response<List<String>> response : responses) {
+			RecoveredInstance instance;
+			try {
+				instance = toRecovered(response.get());
+			} catch (Exception e) {
+				// WRONGTYPE - not an instance hash
+				continue;
 			}
+			if (instance != null && instance.hasPendingShutdown()) pending.add(instance);
 		}
+		return pending;
+	}
 
-		// Build all fields in a map first, then write atomically with hset(key, map)
-		// This prevents partial writes if an error occurs mid-update
-		Map<String, String> fields = new HashMap<>();
-		fields.put("uid", instance.getUid());
-		fields.put("name", instance.getName());
-		fields.put("podName", instance.getPodName());
-		fields.put("ip", instance.getIp());
-		fields.put("state", instance.getState() != null ? instance.getState().name() : InstanceState.STARTING.name());
-		fields.put("deployment", instance.getDeployment());
+	/**
+	 * @param fields values of RECOVERY_FIELDS, in order
+	 * @return null if the hash is gone or missing its identity
+	 */
+	private static RecoveredInstance toRecovered(List<String> fields) {
+		if (fields == null || fields.get(0) == null || fields.get(1) == null) return null;
+
+		InstanceState state = null;
+		try {
+			if (fields.get(2) != null) state = InstanceState.valueOf(fields.get(2));
+		} catch (IllegalArgumentException ignored) {
+		}
 
-		if (instance instanceof MinecraftInstance minecraftInstance) {
-			fields.put("players", new Gson().toJson(minecraftInstance.getPlayers()));
+		long blockUntil = 0;
+		try {
+			if (fields.get(5) != null) blockUntil = Long.parseLong(fields.get(5));
+		} catch (NumberFormatException ignored) {
 		}
+		return new RecoveredInstance(fields.get(0), fields.get(1), state, fields.get(3), fields.get(4), blockUntil);
+	}
+
+	/**
+	 * Delete the instance hashes and rosters of pods that no longer exist, in SCAN pages and
+	 * batched UNLINKs so a large keyspace is never deleted in one blocking call.
+	 *
+	 * @param liveUids UIDs of every pod that currently exists
+	 * @param ownsDeployment only keys of deployments this replica owns are touched
+	 * @return number of instances pruned
+	 */
+	public int pruneOrphans(Set<String> liveUids, Predicate<String> ownsDeployment) {
+		int[] pruned = {0};
+		for (String prefix : new String[]{INSTANCE_PREFIX, ROSTER_PREFIX}) {
+			List<String> batch = new ArrayList<>(UNLINK_BATCH);
+			Map<String, List<String>> indexRemovals = new HashMap<>();
+			scanKeys(scanPattern(prefix), keys -> {
+				for (String key : keys) {
+					String[] parts = parsePodKey(prefix, key);
+					if (parts == null || !key.equals(podKey(prefix, parts[0], parts[1]))) continue;
+					String uid = parts[0];
+					String deployment = parts[1];
+					if (liveUids.contains(uid) || !ownsDeployment.test(deployment)) continue;
+
+					batch.add(key);
+					if (prefix.equals(INSTANCE_PREFIX)) {
+						indexRemovals.computeIfAbsent(instanceIndexKey(deployment), k -> new ArrayList<>()).add(key);
+						pruned[0]++;
+					}
+					if (batch.size() >= UNLINK_BATCH) {
+						unlinkBatch(batch, indexRemovals);
+					}
+				}
+			});
+			unlinkBatch(batch, indexRemovals);
+		}
+		invalidateAllCached();
+		return pruned[0];
+	}
+
+	private void unlinkBatch(List<String> keys, Map<String, List<String>> indexRemovals) {
+		if (keys.isEmpty()) return;
+
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			for (String key : keys) {
+				pipeline.unlink(key);
+			}
+			for (Map.Entry<String, List<String>> entry : indexRemovals.entrySet()) {
+				pipeline.srem(entry.getKey(), entry.getValue().toArray(new String[0]));
+			}
+			pipeline.sync();
+		}
+		keys.clear();
+		indexRemovals.clear();
+	}
+
+	/**
+	 * Write an instance hash and index it, atomically and in one round trip. Players are not
+	 * part of this write - see {@link #addPlayer} and {@link #removePlayer}.
+	 *
+	 * An instance that is already STOPPING or STOPPED is never moved back to a live state -
+	 * this keeps discovery or a late player event from resurrecting a dying instance.
+	 *
+	 * @return true if the write was applied, false if the terminal-state guard rejected it
+	 */
+	public boolean updateInstance(Instance instance) {
+		String key = instanceKey(instance.getUid(), instance.getDeployment());
+		String state = instance.getState() != null ? instance.getState().name() : InstanceState.STARTING.name();
+
+		// KEYS: instance hash, deployment index. ARGV: new state, Minecraft flag, then field/value pairs
+		List<String> args = new ArrayList<>(14);
+		args.add(state);
+		args.add(instance instanceof MinecraftInstance ? "1" : "0");
+		args.add("uid");
+		args.add(instance.getUid());
+		args.add("name");
+		args.add(instance.getName());
+		args.add("podName");
+		args.add(instance.getPodName());
+		args.add("ip");
+		args.add(instance.getIp());
+		args.add("state");
+		args.add(state);
+		args.add("deployment");
+		args.add(instance.getDeployment());
 
 		// TODO: Heartbeat implementation - add last_heartbeat timestamp
-		// fields.put("last_heartbeat", String.valueOf(System.currentTimeMillis()));
 		// This will enable detection of stuck/unresponsive instances during shutdown negotiation
 
-		// Atomic write - all fields written in single Redis command
-		withRedis(jedis -> jedis.hset(key, fields));
+		Object result = evalScript(UPDATE_INSTANCE_SCRIPT, List.of(key, instanceIndexKey(instance.getDeployment())), args);
+		invalidateCached(key, instanceIndexKey(instance.getDeployment()));
+
+		boolean applied = Long.valueOf(1).equals(result);
+		if (!applied) {
+			System.out.println("Ignoring state update for " + instance.getName() +
+				": already terminating, cannot change to " + state);
+		}
+		return applied;
 	}
 
-	public List<Instance> scanAndDeserializeInstances(String pattern) {
-		Gson gson = new Gson();
-		Map<String, Instance> resultMap = new HashMap<>(); // Use Map to deduplicate by UID
-		Type playerMapType = new TypeToken<Map<UUID, String>>(){}.getType();
+	/**
+	 * Run a preloaded script by its SHA, loading it again if the node has lost it (restart,
+	 * SCRIPT FLUSH, or a node that joined the cluster later).
+	 */
+	private Object evalScript(LuaScript script, List<String> keys, List<String> args) {
+		try {
+			return redis.evalsha(script.sha(), keys, args);
+		} catch (JedisNoScriptException e) {
+			// Loaded on the node that owns the first key, which is where the script runs
+			redis.scriptLoad(script.source(), keys.get(0));
+			return redis.evalsha(script.sha(), keys, args);
+		}
+	}
 
-		try(Jedis jedis = jedisPool.getResource()) {
-			String cursor = "0";
-			do {
-				ScanResult<String> scanResult = jedis.scan(cursor, new ScanParams().match(pattern));
-				cursor = scanResult.getCursor();
+	/**
+	 * Add a player to an instance's roster. Only the single roster entry is written and the
+	 * count field adjusted, however many players the instance has.
+	 *
+	 * @return the instance's player count afterwards, or -1 if the instance no longer exists
+	 */
+	public int addPlayer(Instance instance, UUID player, String name) {
+		List<String> keys = List.of(instanceKey(instance.getUid(), instance.getDeployment()), rosterKey(instance.getUid(), instance.getDeployment()));
+		List<String> args = List.of(player.toString(), name, mirrorLegacyPlayers ? "1" : "0");
+
+		try {
+			return ((Long) evalScript(ADD_PLAYER_SCRIPT, keys, args)).intValue();
+		} finally {
+			invalidateCached(keys.get(0));
+		}
+	}
 
-				for(String key : scanResult.getResult()) {
-					// Skip if we've already processed this key (SCAN can return duplicates)
-					String keyUid = key.split(":").length > 1 ? key.split(":")[1] : key;
-					if (resultMap.containsKey(keyUid)) {
-						continue;
-					}
+	/**
+	 * Remove a player from an instance's roster.
+	 *
+	 * @return the instance's player count afterwards, or -1 if the instance no longer exists
+	 */
+	public int removePlayer(Instance instance, UUID player) {
+		List<String> keys = List.of(instanceKey(instance.getUid(), instance.getDeployment()), rosterKey(instance.getUid(), instance.getDeployment()));
+		List<String> args = List.of(player.toString(), mirrorLegacyPlayers ? "1" : "0");
+
+		try {
+			return ((Long) evalScript(REMOVE_PLAYER_SCRIPT, keys, args)).intValue();
+		} finally {
+			invalidateCached(keys.get(0));
+		}
+	}
+
+	public void removeInstance(String uid, String deployment) {
+		String key = instanceKey(uid, deployment);
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			pipeline.del(key);
+			pipeline.del(rosterKey(uid, deployment));
+			pipeline.srem(instanceIndexKey(deployment), key);
+			pipeline.sync();
+		}
+		invalidateCached(key, instanceIndexKey(deployment));
+	}
+
+	/**
+	 * Load every instance of a deployment: one SMEMBERS on the deployment's index, then all
+	 * hashes in a single pipelined batch. Only the fixed fields and the player count are read,
+	 * never the rosters.
+	 *
+	 * With the near cache enabled, unchanged index and hashes are served from memory and only
+	 * the rest are read from Redis.
+	 */
+	@SuppressWarnings("unchecked")
+	public List<Instance> getInstances(String deployment) {
+		String indexKey = instanceIndexKey(deployment);
+		List<Instance> instances = new ArrayList<>();
+		NearCache cache = nearCache;
+		boolean cacheable = cache != null && cache.isCacheable(indexKey);
+
+		AbstractPipeline pipeline = null;
+		try {
+			Set<String> keys;
+			Object cachedKeys = cacheable ? cache.get(indexKey, "smembers") : NearCache.MISS;
+			if (cachedKeys != NearCache.MISS) {
+				keys = (Set<String>) cachedKeys;
+			} else {
+				long readGeneration = cacheable ? cache.beginRead() : 0;
+				keys = redis.smembers(indexKey);
+				if (cacheable) cache.put(indexKey, "smembers", Set.copyOf(keys), readGeneration);
+			}
+			if (keys.isEmpty()) return instances;
+
+			List<String> keyList = new ArrayList<>(keys);
+			List<List<String>> cachedHashes = new ArrayList<>(keyList.size());
+			List<Response<List<String>>> responses = new ArrayList<>(keyList.size());
+			long readGeneration = cacheable ? cache.beginRead() : 0;
+			for (String key : keyList) {
+				Object cached = cacheable ? cache.get(key, "hmget") : NearCache.MISS;
+				if (cached != NearCache.MISS) {
+					cachedHashes.add((List<String>) cached);
+					responses.add(null);
+					continue;
+				}
+
+				if (pipeline == null) pipeline = redis.pipelined();
+				cachedHashes.add(null);
+				responses.add(pipeline.hmget(key, INSTANCE_FIELDS));
+			}
+			if (pipeline != null) pipeline.sync();
+
+			List<String> staleKeys = new ArrayList<>();
+			for (int i = 0; i < keyList.size(); i++) {
+				String key = keyList.get(i);
+				List<String> hashData = cachedHashes.get(i);
+				if (hashData == null) {
 					try {
-						String type = jedis.type(key);
-						if (!"hash".equals(type)) {
-							System.err.println("Skipping key '" + key + "' - expected hash but found: " + type);
-							continue;
-						}
-
-						Map<String, String> hashData = jedis.hgetAll(key);
-						if (hashData == null || hashData.isEmpty()) {
-							System.err.println("Skipping key '" + key + "' - hash data is empty or null");
-							continue;
-						}
-
-						String uid = hashData.get("uid");
-						String name = hashData.get("name");
-						String podName = hashData.get("podName");
-						String ip = hashData.get("ip");
-						String deployment = hashData.get("deployment");
-						String stateStr = hashData.get("state");
-
-						InstanceState state = null;
-						if (stateStr != null) {
-							try {
-								state = InstanceState.valueOf(stateStr);
-							} catch (IllegalArgumentException e) {
-								System.err.println("Invalid state '" + stateStr + "' for key '" + key + "', defaulting to null");
-							}
-						}
-
-						Instance instance;
-						if(hashData.containsKey("players")) {
-							String playersStr = hashData.get("players");
-							Map<UUID, String> players = playersStr != null ?
-									gson.fromJson(playersStr, playerMapType) : new HashMap<>();
-
-							instance = new MinecraftInstance(uid, name, podName, ip, deployment);
-							((MinecraftInstance) instance).setPlayers(players);
-						} else {
-							instance = new Instance(uid, name, podName, ip, deployment);
-						}
-
-						instance.setState(state);
-						resultMap.put(uid, instance);
+						hashData = responses.get(i).get();
 					} catch (Exception e) {
-						System.err.println("Error deserializing instance from key '" + key + "': " + e.getMessage());
-						e.printStackTrace();
+						// WRONGTYPE - something else owns this key
+						System.err.println("Skipping key '" + key + "' - expected hash: " + e.getMessage());
+						continue;
+					}
+					if (hashData != null && hashData.get(0) != null && hashData.get(6) == null) {
+						hashData = withLegacyPlayers(key, hashData);
+					}
+					if (cacheable && hashData != null && hashData.get(0) != null) {
+						cache.put(key, "hmget", Collections.unmodifiableList(new ArrayList<>(hashData)), readGeneration);
 					}
 				}
-			} while (!cursor.equals("0"));
+
+				if (hashData == null || hashData.get(0) == null) {
+					// Hash was removed without going through removeInstance
+					staleKeys.add(key);
+					continue;
+				}
+
+				try {
+					instances.add(deserializeInstance(key, hashData));
+				} catch (Exception e) {
+					System.err.println("Error deserializing instance from key '" + key + "': " + e.getMessage());
+					e.printStackTrace();
+				}
+			}
+
+			if (!staleKeys.isEmpty()) {
+				// An updateInstance may have recreated a hash since it was read
+				List<String> pruneKeys = new ArrayList<>(staleKeys.size() + 1);
+				pruneKeys.add(indexKey);
+				pruneKeys.addAll(staleKeys);
+				evalScript(PRUNE_INDEX_SCRIPT, pruneKeys, List.of());
+				invalidateCached(indexKey);
+			}
+		} finally {
+			if (pipeline != null) pipeline.close();
 		}
 
-		return new ArrayList<>(resultMap.values());
+		return instances;
+	}
+
+	/**
+	 * Read the rosters of a deployment's instances in one pipelined batch. Only used when the
+	 * fleet model is loaded, never per event.
+	 *
+	 * @return player UUID -> name for each UID, empty for instances without a roster hash
+	 */
+	public Map<String, Map<UUID, String>> getRosters(String deployment, Collection<String> uids) {
+		Map<String, Map<UUID, String>> rosters = new HashMap<>();
+		if (uids.isEmpty()) return rosters;
+
+		Map<String, Response<Map<String, String>>> responses = new HashMap<>();
+		try (AbstractPipeline pipeline = redis.pipelined()) {
+			for (String uid : uids) {
+				responses.put(uid, pipeline.hgetAll(rosterKey(uid, deployment)));
+			}
+			pipeline.sync();
+		}
+
+		for (Map.Entry<String, Response<Map<String, String>>> response : responses.entrySet()) {
+			Map<UUID, String> roster = new HashMap<>();
+			for (Map.Entry<String, String> player : response.getValue().get().entrySet()) {
+				roster.put(UUID.fromString(player.getKey()), player.getValue());
+			}
+			rosters.put(response.getKey(), roster);
+		}
+		return rosters;
+	}
+
+	/**
+	 * Size of a deployment's instance index - a cheap check that the fleet model hasn't drifted.
+	 */
+	public long countInstances(String deployment) {
+		return redis.scard(instanceIndexKey(deployment));
+	}
+
+	/**
+	 * Hashes written before rosters had their own hash have no playerCount, only the players
+	 * JSON. Read it for those alone - they are rare and gone once the instance re-registers.
+	 */
+	private List<String> withLegacyPlayers(String key, List<String> hashData) {
+		String players = redis.hget(key, "players");
+		if (players == null) return hashData;
+
+		List<String> extended = new ArrayList<>(hashData);
+		extended.add(players);
+		return extended;
+	}
+
+	/**
+	 * @param hashData values of INSTANCE_FIELDS, in order, optionally followed by a legacy players field
+	 */
+	private Instance deserializeInstance(String key, List<String> hashData) {
+		String uid = hashData.get(0);
+		String name = hashData.get(1);
+		String podName = hashData.get(2);
+		String ip = hashData.get(3);
+		String deployment = hashData.get(4);
+		String stateStr = hashData.get(5);
+		String playerCountStr = hashData.get(6);
+		String legacyPlayers = hashData.size() > INSTANCE_FIELDS.length ? hashData.get(INSTANCE_FIELDS.length) : null;
+
+		InstanceState state = null;
+		if (stateStr != null) {
+			try {
+				state = InstanceState.valueOf(stateStr);
+			} catch (IllegalArgumentException e) {
+				System.err.println("Invalid state '" + stateStr + "' for key '" + key + "', defaulting to null");
+			}
+		}
+
+		// Only Minecraft instances carry a player count
+		Instance instance;
+		if(playerCountStr != null) {
+			instance = new CountedMinecraftInstance(uid, name, podName, ip, deployment, Integer.parseInt(playerCountStr));
+		} else if(legacyPlayers != null) {
+			MinecraftInstance minecraftInstance = new MinecraftInstance(uid, name, podName, ip, deployment);
+			minecraftInstance.setPlayers(InstanceCodec.readPlayers(legacyPlayers));
+			instance = minecraftInstance;
+		} else {
+			instance = new Instance(uid, name, podName, ip, deployment);
+		}
+
+		instance.setState(state);
+		return instance;
 	}
 
 	public void updateTimestamp() {
-		withRedis(jedis -> jedis.set("lastManagerUpdate", String.valueOf(System.currentTimeMillis())));
+		redis.set("lastManagerUpdate", String.valueOf(System.currentTimeMillis()));
+	}
+
+	/**
+	 * A Lua script loaded with SCRIPT LOAD and then called by SHA. The SHA is computed locally,
+	 * so it is the same on every node whether or not the script is loaded there yet.
+	 */
+	private static class LuaScript {
+		private final String source;
+		private final String sha;
+
+		LuaScript(String source) {
+			this.source = source;
+			try {
+				byte[] digest = MessageDigest.getInstance("SHA-1").digest(source.getBytes(StandardCharsets.UTF_8));
+				this.sha = HexFormat.of().formatHex(digest);
+			} catch (NoSuchAlgorithmException e) {
+				throw new IllegalStateException(e);
+			}
+		}
+
+		String source() {
+			return source;
+		}
+
+		String sha() {
+			return sha;
+		}
+
+		void load(Jedis jedis) {
+			jedis.scriptLoad(source);
+		}
 	}
-}
\ No newline at end of file
+}
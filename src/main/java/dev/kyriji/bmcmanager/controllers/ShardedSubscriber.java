@@ -0,0 +1,109 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import redis.clients.jedis.JedisShardedPubSub;
+import redis.clients.jedis.util.JedisClusterCRC16;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Feeds {@link SubscriptionManager} from sharded pub/sub (SSUBSCRIBE) when REDIS_SHARDED_PUBSUB
+ * is on, so each message only travels to the cluster node that owns its channel.
+ *
+ * One SSUBSCRIBE can only cover channels in the same hash slot, so channels are grouped by slot
+ * with a connection per group. A group whose slot moves to another node is unsubscribed by
+ * Redis and resubscribes wherever the slot now lives.
+ */
+public class ShardedSubscriber {
+	private static final long RECONNECT_DELAY_MS = 1000;
+	private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+	private final SubscriptionManager subscriptions;
+	private final Map<Integer, SlotSubscription> slots = new ConcurrentHashMap<>();
+	private volatile boolean running;
+
+	public ShardedSubscriber(SubscriptionManager subscriptions) {
+		this.subscriptions = subscriptions;
+	}
+
+	public synchronized void addChannel(String channel) {
+		int slot = JedisClusterCRC16.getSlot(channel);
+		SlotSubscription subscription = slots.get(slot);
+		if (subscription == null) {
+			subscription = new SlotSubscription(slot);
+			subscription.channels.add(channel);
+			slots.put(slot, subscription);
+			if (running) subscription.start();
+			return;
+		}
+
+		subscription.channels.add(channel);
+		// Otherwise the slot's reconnect loop subscribes to it along with the rest of its channels
+		try {
+			if (subscription.pubSub.isSubscribed()) subscription.pubSub.ssubscribe(channel);
+		} catch (Exception e) {
+			System.err.println("Could not add " + channel + " to the live subscription for slot " + slot + " (" + e.getMessage() + ") - subscribing on reconnect");
+		}
+	}
+
+	public synchronized void start() {
+		running = true;
+		for (SlotSubscription subscription : slots.values()) {
+			subscription.start();
+		}
+		System.out.println("Subscribing to sharded Redis channels across " + slots.size() + " slot(s)");
+	}
+
+	public synchronized void shutdown() {
+		running = false;
+		for (SlotSubscription subscription : slots.values()) {
+			subscription.stop();
+		}
+	}
+
+	private class SlotSubscription {
+		final int slot;
+		final Set<String> channels = ConcurrentHashMap.newKeySet();
+		final JedisShardedPubSub pubSub = new JedisShardedPubSub() {
+			@Override
+			public void onSMessage(String channel, String message) {
+				subscriptions.dispatch(channel, message, null);
+			}
+		};
+		Thread thread;
+
+		SlotSubscription(int slot) {
+			this.slot = slot;
+		}
+
+		void start() {
+			thread = new Thread(() -> {
+				long delay = RECONNECT_DELAY_MS;
+				while (running) {
+					try {
+						RedisManager.get().ssubscribe(pubSub, channels.toArray(new String[0]));
+						delay = RECONNECT_DELAY_MS;
+					} catch (Exception e) {
+						if (!running) break;
+						System.err.println("Sharded subscription for slot " + slot + " lost: " + e.getMessage() +
+							" - reconnecting in " + delay + "ms");
+					}
+
+					try {
+						Thread.sleep(delay);
+					} catch (InterruptedException e) {
+						break;
+					}
+					delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+				}
+			}, "redis-sharded-subscriber-" + slot);
+			thread.start();
+		}
+
+		void stop() {
+			if (pubSub.isSubscribed()) pubSub.sunsubscribe();
+			if (thread != null) thread.interrupt();
+		}
+	}
+}
@@ -5,12 +5,17 @@ import dev.kyriji.bigminecraftapi.enums.RedisChannel;
 import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
 import dev.kyriji.bmcmanager.BMCManager;
+import dev.kyriji.bmcmanager.controller.ShardCoordinator;
+import dev.kyriji.bmcmanager.objects.CountedMinecraftInstance;
+import dev.kyriji.bmcmanager.objects.GameServerWrapper;
+import dev.kyriji.bmcmanager.objects.RecoveredInstance;
 import dev.kyriji.bmcmanager.objects.ShutdownProposal;
 import dev.kyriji.bmcmanager.objects.ShutdownResponse;
 
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Manages graceful shutdown negotiation with game server instances.
@@ -21,6 +26,14 @@ import java.util.concurrent.ConcurrentHashMap;
  * - Processes responses (ACCEPT/DELAY/VETO)
  * - Enforces timeout deadlines
  * - Issues final shutdown commands
+ *
+ * Pending shutdowns are indexed by token and by instance UID. Each one moves through its
+ * stages (proposed, responded, final shutdown sent, cancelled) by compare-and-set, so a
+ * response, the timeout checker and a cancellation racing on the same shutdown can't both win.
+ *
+ * With sharding, a replica only tracks shutdowns of the GameServers it owns. When ownership
+ * moves, the old owner lets go of them and the new one picks them up from the shutdown
+ * metadata stored on the instance hashes (see {@link #handOver}).
  */
 public class ShutdownNegotiationManager {
 	private static ShutdownNegotiationManager instance;
@@ -43,9 +56,9 @@ public class ShutdownNegotiationManager {
 	private final Map<String, PendingShutdown> pendingShutdowns = new ConcurrentHashMap<>();
 
 	/**
-	 * Tracks which instance each shutdown token belongs to: token -> instance UID
+	 * The same shutdowns by instance: instance UID -> shutdown state. One per instance.
 	 */
-	private final Map<String, String> tokenToInstanceUid = new ConcurrentHashMap<>();
+	private final Map<String, PendingShutdown> shutdownsByUid = new ConcurrentHashMap<>();
 
 	private ShutdownNegotiationManager() {
 	}
@@ -74,33 +87,43 @@ public class ShutdownNegotiationManager {
 	 * @param instance The instance to shut down
 	 * @param reason Reason for shutdown
 	 * @param maxDelaySeconds Maximum delay allowed
-	 * @return The shutdown token for tracking
+	 * @return The shutdown token for tracking, or null if the instance is already stopping
 	 */
 	public String proposeShutdown(Instance instance, String reason, int maxDelaySeconds) {
+		// Update instance state to DRAINING in Redis - prevents new players being queued
+		// while keeping it distinct from BLOCKED (game in progress, set by server)
+		InstanceState previousState = instance.getState();
+		// Already STOPPING/STOPPED - there is nothing left to negotiate
+		Instance draining = BMCManager.instanceManager.applyState(instance, InstanceState.DRAINING);
+		if (draining == null) return null;
+		if (!RedisManager.get().updateInstance(draining)) {
+			// Redis had it terminating before the model did
+			BMCManager.instanceManager.applyState(draining, previousState);
+			BMCManager.instanceManager.markDrifted(instance, instance.getName() + " is already terminating in Redis");
+			return null;
+		}
+		PodLabelManager.syncLbLabel(draining);
+
 		String token = UUID.randomUUID().toString();
 		long blockUntil = System.currentTimeMillis() + (maxDelaySeconds * 1000L);
 
-		// Create pending shutdown state
-		PendingShutdown pendingShutdown = new PendingShutdown(token, instance.getUid(), reason, blockUntil);
+		// Create pending shutdown state - a new proposal replaces any earlier one for the instance
+		PendingShutdown pendingShutdown = new PendingShutdown(token, instance.getUid(), instance.getDeployment(), reason, blockUntil, false);
 		pendingShutdowns.put(token, pendingShutdown);
-		tokenToInstanceUid.put(token, instance.getUid());
-
-		// Update instance state to DRAINING in Redis - prevents new players being queued
-		// while keeping it distinct from BLOCKED (game in progress, set by server)
-		instance.setState(InstanceState.DRAINING);
-		PodLabelManager.syncLbLabel(instance);
-		RedisManager.get().updateInstance(instance);
-
-		// Store shutdown metadata in Redis
-		String key = "instance:" + instance.getUid() + ":" + instance.getDeployment();
-		RedisManager.get().hset(key, "block_until", String.valueOf(blockUntil));
-		RedisManager.get().hset(key, "shutdown_reason", reason);
-		RedisManager.get().hset(key, "shutdown_token", token);
+		PendingShutdown superseded = shutdownsByUid.put(instance.getUid(), pendingShutdown);
+		if (superseded != null) pendingShutdowns.remove(superseded.token, superseded);
+
+		// Store shutdown metadata in Redis - queued with the proposal, which is sent after it
+		String key = RedisManager.instanceKey(instance.getUid(), instance.getDeployment());
+		RedisManager.get().hsetAsync(key, Map.of(
+			"block_until", String.valueOf(blockUntil),
+			"shutdown_reason", reason,
+			"shutdown_token", token));
 		// TODO: Store last_heartbeat timestamp here for future heartbeat monitoring
 
 		// Send shutdown proposal to instance (includes target IP for filtering)
 		ShutdownProposal proposal = new ShutdownProposal(instance.getIp(), token, reason, maxDelaySeconds);
-		RedisManager.get().publish(SHUTDOWN_PROPOSE_CHANNEL, proposal.serialize());
+		RedisManager.get().publishAsync(SHUTDOWN_PROPOSE_CHANNEL, proposal.serialize());
 
 		System.out.println("Proposed shutdown for instance " + instance.getName() +
 		                   " (UID: " + instance.getUid() + ", IP: " + instance.getIp() + ") - Token: " + token +
@@ -109,6 +132,54 @@ public class ShutdownNegotiationManager {
 		return token;
 	}
 
+	/**
+	 * Resume tracking a shutdown proposed before a manager restart, or by the replica that owned
+	 * the GameServer before, from the metadata stored on the instance hash. Whether the instance
+	 * had responded is not known, so it is held to its deadline but not shut down for failing to
+	 * respond.
+	 *
+	 * @return false if a shutdown was already tracked for the instance
+	 */
+	public boolean recoverShutdown(String token, String instanceUid, String deployment, String reason, long blockUntil) {
+		PendingShutdown pendingShutdown = new PendingShutdown(token, instanceUid, deployment, reason, blockUntil, true);
+		if (shutdownsByUid.putIfAbsent(instanceUid, pendingShutdown) != null) return false;
+		pendingShutdowns.put(token, pendingShutdown);
+
+		System.out.println("Recovered pending shutdown for instance " + instanceUid + " (Token: " + token +
+		                   ", Reason: " + reason + ", deadline in " + Math.max(0, blockUntil - System.currentTimeMillis()) / 1000 + "s)");
+		return true;
+	}
+
+	/**
+	 * Follow shard ownership after it moved: stop tracking shutdowns of GameServers another
+	 * replica now owns, and take over the pending shutdowns of GameServers this replica gained.
+	 * Run as a shard membership listener.
+	 */
+	public void handOver() {
+		ShardCoordinator shards = BMCManager.shardCoordinator;
+		if (!shards.isEnabled()) return;
+
+		int released = 0;
+		for (PendingShutdown pendingShutdown : pendingShutdowns.values()) {
+			if (!shards.ownedByOther(pendingShutdown.deployment)) continue;
+			remove(pendingShutdown);
+			released++;
+		}
+
+		int adopted = 0;
+		for (GameServerWrapper<?> gameServer : BMCManager.gameServerManager.getGameServers()) {
+			if (!shards.owns(gameServer.getName())) continue;
+			for (RecoveredInstance recovered : RedisManager.get().getPendingShutdowns(gameServer.getName())) {
+				if (recoverShutdown(recovered.getShutdownToken(), recovered.getUid(), recovered.getDeployment(),
+					recovered.getShutdownReason(), recovered.getBlockUntil())) adopted++;
+			}
+		}
+
+		if (released > 0 || adopted > 0) {
+			System.out.println("Shutdown handoff: released " + released + ", took over " + adopted + " pending shutdown(s)");
+		}
+	}
+
 	/**
 	 * Handle a shutdown response from an instance.
 	 * Called by the shutdown response listener.
@@ -120,18 +191,35 @@ public class ShutdownNegotiationManager {
 		PendingShutdown pendingShutdown = pendingShutdowns.get(token);
 
 		if (pendingShutdown == null) {
+			// With several replicas, responses to the other replicas' proposals arrive here too
+			if (BMCManager.shardCoordinator.isEnabled()) return;
 			System.err.println("Received shutdown response for unknown token: " + token);
 			return;
 		}
 
-		if (pendingShutdown.hasResponded) {
-			System.out.println("Ignoring duplicate response for token: " + token);
-			return;
+		ShutdownStage current = pendingShutdown.stage.get();
+		String instanceUid = pendingShutdown.instanceUid;
+
+		long blockUntil = current.blockUntil;
+		switch (response.getResponseType()) {
+			case DELAY -> {
+				int requestedSeconds = response.getRequestedSeconds() != null ? response.getRequestedSeconds() : 0;
+				int originalMaxDelay = (int) ((current.blockUntil - pendingShutdown.proposalTime) / 1000);
+				blockUntil = pendingShutdown.proposalTime + (Math.min(requestedSeconds, originalMaxDelay) * 1000L);
+			}
+			// Safety timeout - server should set STOPPING state before this
+			case SELF_MANAGED -> blockUntil = System.currentTimeMillis() + (SELF_MANAGED_SAFETY_TIMEOUT_SECONDS * 1000L);
+			default -> {
+			}
 		}
 
-		pendingShutdown.hasResponded = true;
-		pendingShutdown.responseType = response.getResponseType();
-		String instanceUid = pendingShutdown.instanceUid;
+		// Only the first response counts, and not once the shutdown has been finalized or cancelled
+		if (current.phase != ShutdownPhase.PROPOSED ||
+		    !pendingShutdown.stage.compareAndSet(current, current.responded(response.getResponseType(), blockUntil))) {
+			System.out.println("Ignoring " + response.getResponseType() + " response for token " + token +
+			                   " - shutdown is already " + pendingShutdown.stage.get().phase);
+			return;
+		}
 
 		switch (response.getResponseType()) {
 			case ACCEPT:
@@ -141,12 +229,7 @@ public class ShutdownNegotiationManager {
 
 			case DELAY:
 				int requestedSeconds = response.getRequestedSeconds() != null ? response.getRequestedSeconds() : 0;
-				int originalMaxDelay = (int) ((pendingShutdown.blockUntil - pendingShutdown.proposalTime) / 1000);
-				int grantedSeconds = Math.min(requestedSeconds, originalMaxDelay);
-
-				// Update block_until
-				long newBlockUntil = pendingShutdown.proposalTime + (grantedSeconds * 1000L);
-				pendingShutdown.blockUntil = newBlockUntil;
+				int grantedSeconds = (int) ((blockUntil - pendingShutdown.proposalTime) / 1000);
 
 				System.out.println("Instance " + instanceUid + " requested shutdown delay of " + requestedSeconds + "s" +
 				                   " (granted: " + grantedSeconds + "s) - Reason: " + response.getReason() +
@@ -155,8 +238,8 @@ public class ShutdownNegotiationManager {
 				// Update Redis block_until
 				Instance instance = getInstanceByUid(instanceUid);
 				if (instance != null) {
-					String key = "instance:" + instance.getUid() + ":" + instance.getDeployment();
-					RedisManager.get().hset(key, "block_until", String.valueOf(newBlockUntil));
+					String key = RedisManager.instanceKey(instance.getUid(), instance.getDeployment());
+					RedisManager.get().hsetAsync(key, Map.of("block_until", String.valueOf(blockUntil)));
 				}
 				break;
 
@@ -166,15 +249,11 @@ public class ShutdownNegotiationManager {
 				System.out.println("Server will set STOPPING state when ready. Safety timeout: " +
 				                   SELF_MANAGED_SAFETY_TIMEOUT_SECONDS + "s");
 
-				// Set safety timeout - server should set STOPPING state before this
-				long safetyBlockUntil = System.currentTimeMillis() + (SELF_MANAGED_SAFETY_TIMEOUT_SECONDS * 1000L);
-				pendingShutdown.blockUntil = safetyBlockUntil;
-
 				// Update Redis
 				Instance selfManagedInstance = getInstanceByUid(instanceUid);
 				if (selfManagedInstance != null) {
-					String key = "instance:" + selfManagedInstance.getUid() + ":" + selfManagedInstance.getDeployment();
-					RedisManager.get().hset(key, "block_until", String.valueOf(safetyBlockUntil));
+					String key = RedisManager.instanceKey(selfManagedInstance.getUid(), selfManagedInstance.getDeployment());
+					RedisManager.get().hsetAsync(key, Map.of("block_until", String.valueOf(blockUntil)));
 				}
 				break;
 		}
@@ -196,24 +275,27 @@ public class ShutdownNegotiationManager {
 		long now = System.currentTimeMillis();
 
 		for (PendingShutdown pendingShutdown : pendingShutdowns.values()) {
-			if (pendingShutdown.finalShutdownSent) {
+			ShutdownStage stage = pendingShutdown.stage.get();
+			if (stage.phase == ShutdownPhase.FINAL_SENT || stage.phase == ShutdownPhase.CANCELLED) {
 				continue; // Already sent final shutdown
 			}
 
 			Instance instance = getInstanceByUid(pendingShutdown.instanceUid);
 			if (instance == null) {
 				// Instance no longer exists, clean up
-				pendingShutdowns.remove(pendingShutdown.token);
-				tokenToInstanceUid.remove(pendingShutdown.token);
+				remove(pendingShutdown);
 				continue;
 			}
 
+			boolean hasResponded = stage.phase == ShutdownPhase.RESPONDED;
+
 			boolean shouldShutdown = false;
 			String shutdownReason = null;
 
 			// Check #1: Response timeout - server not running API or unresponsive
-			// If no response received within RESPONSE_TIMEOUT_SECONDS, shutdown immediately
-			if (!pendingShutdown.hasResponded) {
+			// If no response received within RESPONSE_TIMEOUT_SECONDS, shutdown immediately.
+			// A recovered shutdown's response may have arrived before the restart.
+			if (!hasResponded && !pendingShutdown.recovered) {
 				long timeSinceProposal = now - pendingShutdown.proposalTime;
 				if (timeSinceProposal >= (RESPONSE_TIMEOUT_SECONDS * 1000L)) {
 					System.out.println("No response received from instance " + instance.getName() +
@@ -224,7 +306,7 @@ public class ShutdownNegotiationManager {
 			}
 
 			// Check #2: Hard deadline reached
-			if (now >= pendingShutdown.blockUntil) {
+			if (now >= stage.blockUntil) {
 				System.out.println("Shutdown deadline reached for instance " + instance.getName() +
 				                   " (UID: " + pendingShutdown.instanceUid + ")");
 				shouldShutdown = true;
@@ -232,8 +314,7 @@ public class ShutdownNegotiationManager {
 			}
 
 			// Check #4: Server explicitly accepted shutdown - proceed immediately regardless of players
-			if (pendingShutdown.hasResponded &&
-			    pendingShutdown.responseType == ShutdownResponse.ResponseType.ACCEPT) {
+			if (hasResponded && stage.responseType == ShutdownResponse.ResponseType.ACCEPT) {
 				shouldShutdown = true;
 				shutdownReason = "accepted";
 			}
@@ -244,15 +325,15 @@ public class ShutdownNegotiationManager {
 			// - Server requested delay and we've reached the granted deadline
 			// NEVER apply for SELF_MANAGED - server has full control
 			if (instance instanceof MinecraftInstance minecraftInstance) {
-				if (minecraftInstance.getPlayers().isEmpty()) {
+				if (CountedMinecraftInstance.playerCount(minecraftInstance) == 0) {
 					boolean canOptimizeForZeroPlayers = false;
 
-					if (!pendingShutdown.hasResponded) {
+					if (!hasResponded) {
 						// No response yet - don't optimize, wait for response timeout
 						canOptimizeForZeroPlayers = false;
 					} else {
 						// Server responded
-						ShutdownResponse.ResponseType responseType = pendingShutdown.responseType;
+						ShutdownResponse.ResponseType responseType = stage.responseType;
 
 						if (responseType == ShutdownResponse.ResponseType.ACCEPT) {
 							// Server accepted - safe to shutdown immediately
@@ -260,7 +341,7 @@ public class ShutdownNegotiationManager {
 						} else if (responseType == ShutdownResponse.ResponseType.DELAY) {
 							// Server requested delay - only optimize if we've reached the granted deadline
 							// This respects the full delay period that was granted
-							if (now >= pendingShutdown.blockUntil) {
+							if (now >= stage.blockUntil) {
 								canOptimizeForZeroPlayers = true;
 							}
 						} else if (responseType == ShutdownResponse.ResponseType.SELF_MANAGED) {
@@ -278,9 +359,9 @@ public class ShutdownNegotiationManager {
 				}
 			}
 
-			if (shouldShutdown) {
+			// Lost to a response or cancellation that landed meanwhile - look again next pass
+			if (shouldShutdown && pendingShutdown.stage.compareAndSet(stage, stage.finalSent())) {
 				issueFinalShutdown(instance, pendingShutdown.token);
-				pendingShutdown.finalShutdownSent = true;
 				finalizedShutdowns.add(pendingShutdown.instanceUid);
 
 				// Log the reason for shutdown
@@ -305,7 +386,7 @@ public class ShutdownNegotiationManager {
 
 		// Send final shutdown command to server (for servers that implement the API)
 		// This allows them to perform cleanup before pod deletion
-		RedisManager.get().publish(SHUTDOWN_FINAL_CHANNEL, token);
+		RedisManager.get().publishAsync(SHUTDOWN_FINAL_CHANNEL, token);
 
 		// Schedule state change to STOPPING after grace period
 		// This gives servers with the API time to:
@@ -352,10 +433,11 @@ public class ShutdownNegotiationManager {
 				// handles pod deletion. Servers with the BMC API publish this themselves on
 				// onFinalShutdown(); for instances without it (e.g. PROCESS pods) the manager
 				// must do it here.
-				currentInstance.setState(InstanceState.STOPPING);
-				PodLabelManager.syncLbLabel(currentInstance);
-				RedisManager.get().updateInstance(currentInstance);
-				RedisManager.get().publish(RedisChannel.INSTANCE_STATE_CHANGE.getRef(),
+				// STOPPING is never refused
+				Instance stopping = BMCManager.instanceManager.applyState(currentInstance, InstanceState.STOPPING);
+				PodLabelManager.syncLbLabel(stopping);
+				RedisManager.get().updateInstance(stopping);
+				RedisManager.get().publishEvent(RedisChannel.INSTANCE_STATE_CHANGE.getRef(),
 						currentInstance.getIp() + ":STOPPING");
 				System.out.println("Grace period expired - set " + instance.getName() + " to STOPPING");
 
@@ -372,8 +454,7 @@ public class ShutdownNegotiationManager {
 	 * @return True if shutdown is pending
 	 */
 	public boolean isPendingShutdown(String instanceUid) {
-		return pendingShutdowns.values().stream()
-				.anyMatch(ps -> ps.instanceUid.equals(instanceUid));
+		return shutdownsByUid.containsKey(instanceUid);
 	}
 
 	/**
@@ -383,11 +464,8 @@ public class ShutdownNegotiationManager {
 	 * @return The shutdown token, or null if no pending shutdown
 	 */
 	public String getShutdownToken(String instanceUid) {
-		return pendingShutdowns.values().stream()
-				.filter(ps -> ps.instanceUid.equals(instanceUid))
-				.map(ps -> ps.token)
-				.findFirst()
-				.orElse(null);
+		PendingShutdown pendingShutdown = shutdownsByUid.get(instanceUid);
+		return pendingShutdown != null ? pendingShutdown.token : null;
 	}
 
 	/**
@@ -396,22 +474,33 @@ public class ShutdownNegotiationManager {
 	 * @param token The shutdown token to cancel
 	 */
 	public void cancelShutdown(String token) {
-		PendingShutdown pendingShutdown = pendingShutdowns.remove(token);
+		PendingShutdown pendingShutdown = pendingShutdowns.get(token);
 		if (pendingShutdown != null) {
-			tokenToInstanceUid.remove(token);
+			// Too late once the final shutdown has gone out
+			ShutdownStage stage;
+			do {
+				stage = pendingShutdown.stage.get();
+				if (stage.phase == ShutdownPhase.FINAL_SENT || stage.phase == ShutdownPhase.CANCELLED) {
+					System.out.println("Not cancelling shutdown " + token + " - already " + stage.phase);
+					return;
+				}
+			} while (!pendingShutdown.stage.compareAndSet(stage, stage.cancelled()));
+			remove(pendingShutdown);
 
 			Instance instance = getInstanceByUid(pendingShutdown.instanceUid);
 			if (instance != null) {
-				// Revert to RUNNING state
-				instance.setState(InstanceState.RUNNING);
-				PodLabelManager.syncLbLabel(instance);
-				RedisManager.get().updateInstance(instance);
+				// Revert to RUNNING state - too late if the instance has already started stopping
+				Instance running = BMCManager.instanceManager.applyState(instance, InstanceState.RUNNING);
+				if (running == null) return;
+				if (!RedisManager.get().updateInstance(running)) {
+					BMCManager.instanceManager.markDrifted(instance, instance.getName() + " is already terminating in Redis");
+					return;
+				}
+				PodLabelManager.syncLbLabel(running);
 
 				// Clear shutdown metadata from Redis
-				String key = "instance:" + instance.getUid() + ":" + instance.getDeployment();
-				RedisManager.get().withRedis(jedis -> {
-					jedis.hdel(key, "block_until", "shutdown_reason", "shutdown_token");
-				});
+				String key = RedisManager.instanceKey(instance.getUid(), instance.getDeployment());
+				RedisManager.get().hdelAsync(key, "block_until", "shutdown_reason", "shutdown_token");
 
 				System.out.println("Cancelled shutdown for instance " + instance.getName() +
 				                   " (Token: " + token + ")");
@@ -424,35 +513,28 @@ public class ShutdownNegotiationManager {
 	 * Should be called periodically.
 	 */
 	public void cleanupCompletedShutdowns() {
-		java.util.List<String> tokensToRemove = new java.util.ArrayList<>();
-
-		for (Map.Entry<String, PendingShutdown> entry : pendingShutdowns.entrySet()) {
-			String token = entry.getKey();
-			PendingShutdown pendingShutdown = entry.getValue();
-
-			if (pendingShutdown.finalShutdownSent) {
+		for (PendingShutdown pendingShutdown : pendingShutdowns.values()) {
+			if (pendingShutdown.stage.get().phase == ShutdownPhase.FINAL_SENT) {
 				// Check if instance still exists
 				Instance instance = getInstanceByUid(pendingShutdown.instanceUid);
 				if (instance == null || instance.getState() == InstanceState.STOPPED) {
-					tokensToRemove.add(token);
+					remove(pendingShutdown);
 				}
 			}
 		}
+	}
 
-		for (String token : tokensToRemove) {
-			pendingShutdowns.remove(token);
-			tokenToInstanceUid.remove(token);
-		}
+	// Only this shutdown's entries - a newer proposal for the same instance stays
+	private void remove(PendingShutdown pendingShutdown) {
+		pendingShutdowns.remove(pendingShutdown.token, pendingShutdown);
+		shutdownsByUid.remove(pendingShutdown.instanceUid, pendingShutdown);
 	}
 
 	/**
 	 * Helper to get an instance by UID from InstanceManager.
 	 */
 	private Instance getInstanceByUid(String uid) {
-		return BMCManager.instanceManager.getInstances().stream()
-				.filter(i -> i.getUid().equals(uid))
-				.findFirst()
-				.orElse(null);
+		return BMCManager.instanceManager.getByUid(uid);
 	}
 
 	/**
@@ -461,19 +543,56 @@ public class ShutdownNegotiationManager {
 	private static class PendingShutdown {
 		final String token;
 		final String instanceUid;
+		final String deployment;
 		final String reason;
 		final long proposalTime;
-		long blockUntil;
-		boolean hasResponded = false;
-		boolean finalShutdownSent = false;
-		ShutdownResponse.ResponseType responseType = null;
+		// Restored from Redis after a manager restart or a shard handoff
+		final boolean recovered;
+		// Replaced as a whole, by compare-and-set
+		final AtomicReference<ShutdownStage> stage;
 
-		PendingShutdown(String token, String instanceUid, String reason, long blockUntil) {
+		PendingShutdown(String token, String instanceUid, String deployment, String reason, long blockUntil, boolean recovered) {
 			this.token = token;
 			this.instanceUid = instanceUid;
+			this.deployment = deployment;
 			this.reason = reason;
 			this.proposalTime = System.currentTimeMillis();
+			this.recovered = recovered;
+			this.stage = new AtomicReference<>(new ShutdownStage(ShutdownPhase.PROPOSED, null, blockUntil));
+		}
+	}
+
+	private enum ShutdownPhase {
+		PROPOSED,
+		RESPONDED,
+		FINAL_SENT,
+		CANCELLED,
+	}
+
+	/**
+	 * Where a shutdown stands. Immutable - a transition swaps in a new stage.
+	 */
+	private static final class ShutdownStage {
+		final ShutdownPhase phase;
+		final ShutdownResponse.ResponseType responseType;
+		final long blockUntil;
+
+		ShutdownStage(ShutdownPhase phase, ShutdownResponse.ResponseType responseType, long blockUntil) {
+			this.phase = phase;
+			this.responseType = responseType;
 			this.blockUntil = blockUntil;
 		}
+
+		ShutdownStage responded(ShutdownResponse.ResponseType responseType, long blockUntil) {
+			return new ShutdownStage(ShutdownPhase.RESPONDED, responseType, blockUntil);
+		}
+
+		ShutdownStage finalSent() {
+			return new ShutdownStage(ShutdownPhase.FINAL_SENT, responseType, blockUntil);
+		}
+
+		ShutdownStage cancelled() {
+			return new ShutdownStage(ShutdownPhase.CANCELLED, responseType, blockUntil);
+		}
 	}
 }
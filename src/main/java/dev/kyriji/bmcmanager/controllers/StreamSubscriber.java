@@ -0,0 +1,392 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import dev.kyriji.bmcmanager.BMCManager;
+import redis.clients.jedis.AbstractPipeline;
+import redis.clients.jedis.StreamEntryID;
+import redis.clients.jedis.UnifiedJedis;
+import redis.clients.jedis.exceptions.JedisDataException;
+import redis.clients.jedis.params.XAutoClaimParams;
+import redis.clients.jedis.params.XReadGroupParams;
+import redis.clients.jedis.resps.StreamConsumerInfo;
+import redis.clients.jedis.resps.StreamEntry;
+import redis.clients.jedis.resps.StreamGroupInfo;
+import redis.clients.jedis.resps.StreamPendingSummary;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Reads manager events from Redis Streams through a consumer group, as a durable alternative
+ * to pub/sub.
+ *
+ * Every channel maps to a stream (see {@link RedisManager#streamKey}). Entries are read in
+ * batches with XREADGROUP, handed to SubscriptionManager's per-channel executors, and acked
+ * once their handler has run - so anything published while the manager was down or
+ * reconnecting is still delivered, and entries that were read but never handled are replayed.
+ *
+ * On start the consumer first replays its own pending entries, then reads new ones. Entries
+ * left pending by a consumer that went away are reclaimed with XAUTOCLAIM once they have been
+ * idle long enough. Entries already handed to a handler and not yet acked are tracked, so
+ * neither the replay nor a reclaim dispatches them a second time.
+ *
+ * A stream whose channel has no room for another batch is left unread until its handlers catch
+ * up; the other streams carry on.
+ *
+ * With sharding every replica has a group of its own, named after the pod - so a restarted
+ * replica comes back with a new group and consumer. It waits for its share of the ring to
+ * settle, then creates its groups from the oldest point any departed replica's group had not
+ * finished with, so nothing published while it was down is skipped. Groups of replicas that
+ * have left the ring, and idle consumers of the shared group with nothing pending, are removed
+ * once they have been idle for RETIRE_IDLE_MS.
+ */
+public class StreamSubscriber {
+	private static final int BLOCK_MS = 2000;
+	private static final long CLAIM_IDLE_MS = 60_000;
+	private static final long CLAIM_INTERVAL_MS = 30_000;
+	// Wait between passes when every stream's channel is full
+	private static final long FULL_PAUSE_MS = 100;
+	private static final long RECONNECT_DELAY_MS = 1000;
+	private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+	// A consumer that hasn't read for this long belongs to a replica that is gone
+	private static final long STALE_IDLE_MS = 15_000;
+	// Left this long before being removed, so replicas restarting at the same time can still inherit from it
+	private static final long RETIRE_IDLE_MS = 10 * 60_000;
+
+	private final SubscriptionManager subscriptions;
+	private final String group;
+	private final String consumer;
+	// Prefix of the per-replica group names, followed by the replica's identity; null for a shared group
+	private final String memberGroupPrefix;
+	private final int batchSize;
+	// stream key -> channel
+	private final Map<String, String> streams = new ConcurrentHashMap<>();
+	// Handled entries waiting to be acked, per stream key
+	private final Map<String, Queue<StreamEntryID>> pendingAcks = new ConcurrentHashMap<>();
+	// Dispatched entries not yet acked, per stream key
+	private final Map<String, Set<StreamEntryID>> inFlight = new ConcurrentHashMap<>();
+	private final Set<String> groupsCreated = ConcurrentHashMap.newKeySet();
+	private volatile boolean running;
+	private Thread readerThread;
+	private long lastClaim;
+
+	public StreamSubscriber(SubscriptionManager subscriptions, String group, String consumer, String memberGroupPrefix, int batchSize) {
+		this.subscriptions = subscriptions;
+		this.group = group;
+		this.consumer = consumer;
+		this.memberGroupPrefix = memberGroupPrefix;
+		this.batchSize = batchSize;
+	}
+
+	public void addChannel(String channel) {
+		String streamKey = RedisManager.streamKey(channel);
+		pendingAcks.putIfAbsent(streamKey, new ConcurrentLinkedQueue<>());
+		inFlight.putIfAbsent(streamKey, ConcurrentHashMap.newKeySet());
+		streams.put(streamKey, channel);
+	}
+
+	public void start() {
+		running = true;
+		readerThread = new Thread(() -> {
+			long delay = RECONNECT_DELAY_MS;
+			while (running) {
+				try {
+					RedisManager.get().withRedis(this::consume);
+					delay = RECONNECT_DELAY_MS;
+				} catch (Exception e) {
+					if (!running) break;
+					// Redis may have restarted without its streams - recreate the groups on reconnect
+					groupsCreated.clear();
+					System.err.println("Redis stream consumer lost: " + e.getMessage() + " - reconnecting in " + delay + "ms");
+				}
+
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					break;
+				}
+				delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+			}
+		}, "redis-stream-consumer");
+		readerThread.start();
+
+		System.out.println("Consuming " + streams.size() + " event stream(s) as " + consumer + " in group " + group);
+	}
+
+	private void consume(UnifiedJedis jedis) {
+		// Events are dropped for GameServers this replica doesn't own yet - don't read any until it does
+		while (running && memberGroupPrefix != null && !BMCManager.shardCoordinator.isSettled()) {
+			if (!pause()) return;
+		}
+		ensureGroups(jedis);
+
+		// Resume where we left off: entries delivered to this consumer but never acked. Each pass
+		// starts after the last entry the previous one returned; a stream is done once it comes
+		// back empty.
+		Map<String, StreamEntryID> replay = new HashMap<>();
+		for (String streamKey : streams.keySet()) {
+			replay.put(streamKey, new StreamEntryID());
+		}
+		while (running && !replay.isEmpty()) {
+			Map<String, StreamEntryID> ready = withRoom(replay);
+			if (ready.isEmpty() && !pause()) return;
+
+			Map<String, StreamEntryID> last = read(jedis, ready, 0);
+			for (String streamKey : ready.keySet()) {
+				if (last.containsKey(streamKey)) {
+					replay.put(streamKey, last.get(streamKey));
+				} else {
+					replay.remove(streamKey);
+				}
+			}
+			flushAcks(jedis);
+		}
+
+		while (running) {
+			ensureGroups(jedis);
+			Map<String, StreamEntryID> offsets = new HashMap<>();
+			for (String streamKey : streams.keySet()) {
+				offsets.put(streamKey, StreamEntryID.XREADGROUP_UNDELIVERED_ENTRY);
+			}
+			Map<String, StreamEntryID> ready = withRoom(offsets);
+			if (ready.isEmpty() && !pause()) return;
+
+			read(jedis, ready, BLOCK_MS);
+			flushAcks(jedis);
+
+			if (System.currentTimeMillis() - lastClaim >= CLAIM_INTERVAL_MS) {
+				reclaim(jedis);
+				retire(jedis);
+				lastClaim = System.currentTimeMillis();
+			}
+		}
+		flushAcks(jedis);
+	}
+
+	/**
+	 * Read one batch from each of the given streams and dispatch it.
+	 *
+	 * @return the last entry ID read, for each stream that returned any entries
+	 */
+	private Map<String, StreamEntryID> read(UnifiedJedis jedis, Map<String, StreamEntryID> offsets, int blockMs) {
+		Map<String, StreamEntryID> last = new HashMap<>();
+		if (offsets.isEmpty()) return last;
+
+		XReadGroupParams params = XReadGroupParams.xReadGroupParams().count(batchSize);
+		if (blockMs > 0) params.block(blockMs);
+
+		List<Map.Entry<String, List<StreamEntry>>> result = jedis.xreadGroup(group, consumer, params, offsets);
+		if (result == null) return last;
+
+		for (Map.Entry<String, List<StreamEntry>> stream : result) {
+			for (StreamEntry entry : stream.getValue()) {
+				dispatch(stream.getKey(), entry);
+				last.put(stream.getKey(), entry.getID());
+			}
+		}
+		return last;
+	}
+
+	/**
+	 * The streams whose channel can take a whole batch.
+	 */
+	private Map<String, StreamEntryID> withRoom(Map<String, StreamEntryID> offsets) {
+		Map<String, StreamEntryID> ready = new HashMap<>();
+		offsets.forEach((streamKey, id) -> {
+			String channel = streams.get(streamKey);
+			if (channel == null || subscriptions.hasRoom(channel, batchSize)) ready.put(streamKey, id);
+		});
+		return ready;
+	}
+
+	/**
+	 * @return false if interrupted, i.e. shutting down
+	 */
+	private boolean pause() {
+		try {
+			Thread.sleep(FULL_PAUSE_MS);
+			return true;
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			return false;
+		}
+	}
+
+	private void reclaim(UnifiedJedis jedis) {
+		for (String streamKey : streams.keySet()) {
+			String channel = streams.get(streamKey);
+			if (channel != null && !subscriptions.hasRoom(channel, batchSize)) continue;
+
+			Map.Entry<StreamEntryID, List<StreamEntry>> claimed = jedis.xautoclaim(streamKey, group, consumer,
+				CLAIM_IDLE_MS, new StreamEntryID(), XAutoClaimParams.xAutoClaimParams().count(batchSize));
+			if (claimed == null || claimed.getValue().isEmpty()) continue;
+
+			// XAUTOCLAIM also returns our own entries that are still queued behind a slow handler
+			int reclaimed = 0;
+			for (StreamEntry entry : claimed.getValue()) {
+				if (dispatch(streamKey, entry)) reclaimed++;
+			}
+			if (reclaimed > 0) System.out.println("Reclaimed " + reclaimed + " stalled entr(y/ies) from " + streamKey);
+		}
+	}
+
+	/**
+	 * Hand an entry to its channel's handler, unless it is already with one.
+	 *
+	 * @return false if the entry was already in flight
+	 */
+	private boolean dispatch(String streamKey, StreamEntry entry) {
+		Queue<StreamEntryID> acks = pendingAcks.get(streamKey);
+		Set<StreamEntryID> dispatched = inFlight.get(streamKey);
+		if (acks == null || !dispatched.add(entry.getID())) return false;
+
+		String channel = streams.get(streamKey);
+		// Deleted entries come back from the PEL without fields
+		String message = entry.getFields() != null ? entry.getFields().get(RedisManager.STREAM_MESSAGE_FIELD) : null;
+		if (channel == null || message == null) {
+			acks.add(entry.getID());
+			return true;
+		}
+
+		// Only read with room to spare, but if the queue filled up anyway the entry stays pending
+		// and is reclaimed later
+		if (!subscriptions.dispatch(channel, message, () -> acks.add(entry.getID()))) {
+			dispatched.remove(entry.getID());
+		}
+		return true;
+	}
+
+	private void flushAcks(UnifiedJedis jedis) {
+		Map<String, List<StreamEntryID>> acked = new HashMap<>();
+		AbstractPipeline pipeline = null;
+		try {
+			for (Map.Entry<String, Queue<StreamEntryID>> entry : pendingAcks.entrySet()) {
+				List<StreamEntryID> ids = new ArrayList<>();
+				StreamEntryID id;
+				while ((id = entry.getValue().poll()) != null) {
+					ids.add(id);
+				}
+				if (ids.isEmpty()) continue;
+
+				if (pipeline == null) pipeline = jedis.pipelined();
+				pipeline.xack(entry.getKey(), group, ids.toArray(new StreamEntryID[0]));
+				acked.put(entry.getKey(), ids);
+			}
+			if (pipeline != null) pipeline.sync();
+		} catch (RuntimeException e) {
+			// Not acked - keep them queued for the next connection
+			acked.forEach((streamKey, ids) -> pendingAcks.get(streamKey).addAll(ids));
+			throw e;
+		} finally {
+			if (pipeline != null) pipeline.close();
+		}
+		acked.forEach((streamKey, ids) -> inFlight.get(streamKey).removeAll(ids));
+	}
+
+	private void ensureGroups(UnifiedJedis jedis) {
+		for (String streamKey : streams.keySet()) {
+			if (groupsCreated.contains(streamKey)) continue;
+			try {
+				StreamEntryID start = memberGroupPrefix != null ? inheritedStart(jedis, streamKey) : StreamEntryID.XGROUP_LAST_ENTRY;
+				jedis.xgroupCreate(streamKey, group, start, true);
+			} catch (JedisDataException e) {
+				// BUSYGROUP - already exists, keep its position
+				if (!e.getMessage().startsWith("BUSYGROUP")) throw e;
+			}
+			groupsCreated.add(streamKey);
+		}
+	}
+
+	/**
+	 * Where a new per-replica group should start: just before the oldest entry a departed
+	 * replica's group still had pending, or else after the last one it was delivered. New
+	 * entries only if no replica has left.
+	 */
+	private StreamEntryID inheritedStart(UnifiedJedis jedis, String streamKey) {
+		List<StreamGroupInfo> groups;
+		try {
+			groups = jedis.xinfoGroups(streamKey);
+		} catch (JedisDataException e) {
+			// No such key - the stream is created along with the group
+			return StreamEntryID.XGROUP_LAST_ENTRY;
+		}
+
+		StreamEntryID start = null;
+		for (StreamGroupInfo info : groups) {
+			String member = memberOf(info.getName());
+			if (member == null) continue;
+			// Still on the ring, but possibly only until its lease runs out - gone if it has stopped reading
+			if (isOnRing(member) && !allIdle(jedis, streamKey, info.getName(), STALE_IDLE_MS)) continue;
+
+			StreamEntryID from = info.getLastDeliveredId();
+			if (info.getPending() > 0) {
+				StreamPendingSummary pending = jedis.xpending(streamKey, info.getName());
+				if (pending != null && pending.getMinId() != null) from = before(pending.getMinId());
+			}
+			if (from != null && (start == null || from.compareTo(start) < 0)) start = from;
+		}
+		if (start == null) return StreamEntryID.XGROUP_LAST_ENTRY;
+
+		System.out.println("Starting group " + group + " on " + streamKey + " after " + start + ", where departed replicas left off");
+		return start;
+	}
+
+	/**
+	 * The replica a per-replica group belongs to, or null for this replica's own group and
+	 * groups that aren't per-replica.
+	 */
+	private String memberOf(String groupName) {
+		if (!groupName.startsWith(memberGroupPrefix) || groupName.equals(group)) return null;
+		return groupName.substring(memberGroupPrefix.length());
+	}
+
+	private static boolean isOnRing(String member) {
+		return BMCManager.shardCoordinator.getMembers().contains(member);
+	}
+
+	private boolean allIdle(UnifiedJedis jedis, String streamKey, String groupName, long idleMs) {
+		for (StreamConsumerInfo info : jedis.xinfoConsumers2(streamKey, groupName)) {
+			if (info.getIdle() != null && info.getIdle() < idleMs) return false;
+		}
+		return true;
+	}
+
+	private static StreamEntryID before(StreamEntryID id) {
+		if (id.getSequence() > 0) return new StreamEntryID(id.getTime(), id.getSequence() - 1);
+		return new StreamEntryID(id.getTime() - 1, Long.MAX_VALUE);
+	}
+
+	/**
+	 * Remove what replicas that are gone left behind: their groups when sharded, otherwise their
+	 * consumers in the shared group once nothing is pending on them (reclaim moves it off first).
+	 */
+	private void retire(UnifiedJedis jedis) {
+		for (String streamKey : streams.keySet()) {
+			try {
+				if (memberGroupPrefix != null) {
+					for (StreamGroupInfo info : jedis.xinfoGroups(streamKey)) {
+						String member = memberOf(info.getName());
+						if (member == null || isOnRing(member) || !allIdle(jedis, streamKey, info.getName(), RETIRE_IDLE_MS)) continue;
+						jedis.xgroupDestroy(streamKey, info.getName());
+						System.out.println("Removed group " + info.getName() + " of a departed replica from " + streamKey);
+					}
+					continue;
+				}
+
+				for (StreamConsumerInfo info : jedis.xinfoConsumers2(streamKey, group)) {
+					if (info.getName().equals(consumer)) continue;
+					if (info.getPending() != null && info.getPending() > 0) continue;
+					if (info.getIdle() == null || info.getIdle() < RETIRE_IDLE_MS) continue;
+					jedis.xgroupDelConsumer(streamKey, group, info.getName());
+				}
+			} catch (JedisDataException e) {
+				System.err.println("Failed to clean up departed consumers on " + streamKey + ": " + e.getMessage());
+			}
+		}
+	}
+
+	public void shutdown() {
+		running = false;
+		if (readerThread != null) readerThread.interrupt();
+	}
+}
@@ -0,0 +1,267 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import dev.kyriji.bmcmanager.BMCManager;
+import dev.kyriji.bmcmanager.enums.EventTransport;
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+import dev.kyriji.bmcmanager.metrics.Histogram;
+import redis.clients.jedis.JedisPubSub;
+
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+/**
+ * Owns the manager's only Redis subscription.
+ *
+ * Listener tasks register a handler per channel; a single subscriber connection covers every
+ * channel and hands each message to that channel's executor, so a slow handler (a pod delete,
+ * a Kubernetes call) only delays its own channel and never the subscriber itself.
+ *
+ * Channels registered with one worker keep their messages in order, as the old dedicated
+ * subscriber threads did. Executor queues are bounded, and a full one only holds back its own
+ * channel: with pub/sub there is nothing to push back on, so the message is dropped and
+ * counted; with streams its stream simply isn't read until there is room again.
+ *
+ * With the streams transport the same routes are fed by a {@link StreamSubscriber} instead,
+ * which acks each entry once its handler has run; with sharded pub/sub, by a
+ * {@link ShardedSubscriber}.
+ */
+public class SubscriptionManager implements MetricsSource {
+	private static SubscriptionManager instance;
+
+	private static final int QUEUE_CAPACITY = 10_000;
+	private static final String STREAM_GROUP = "bmc-manager";
+	private static final long RECONNECT_DELAY_MS = 1000;
+	private static final long MAX_RECONNECT_DELAY_MS = 30_000;
+
+	private final Map<String, ChannelRoute> routes = new ConcurrentHashMap<>();
+	private final JedisPubSub pubSub = new JedisPubSub() {
+		@Override
+		public void onMessage(String channel, String message) {
+			dispatch(channel, message, null);
+		}
+	};
+	private volatile boolean running;
+	private Thread subscriberThread;
+	private StreamSubscriber streamSubscriber;
+	private ShardedSubscriber shardedSubscriber;
+
+	private SubscriptionManager() {
+	}
+
+	public static synchronized SubscriptionManager get() {
+		if (instance == null) {
+			instance = new SubscriptionManager();
+		}
+		return instance;
+	}
+
+	/**
+	 * Handle messages on a channel, one at a time and in order.
+	 */
+	public void register(String channel, Consumer<String> handler) {
+		register(channel, 1, handler);
+	}
+
+	/**
+	 * Handle messages on a channel with the given number of workers. Use more than one only for
+	 * channels whose messages are independent of each other.
+	 */
+	public synchronized void register(String channel, int workers, Consumer<String> handler) {
+		if (routes.containsKey(channel)) {
+			throw new IllegalStateException("Channel " + channel + " already has a handler");
+		}
+
+		routes.put(channel, new ChannelRoute(channel, workers, handler));
+		if (streamSubscriber != null) {
+			streamSubscriber.addChannel(channel);
+		} else if (shardedSubscriber != null) {
+			shardedSubscriber.addChannel(channel);
+		} else if (running) {
+			// The reconnect loop subscribes to every route, so a connection that has just died
+			// picks the channel up when it comes back
+			try {
+				if (pubSub.isSubscribed()) pubSub.subscribe(channel);
+			} catch (Exception e) {
+				System.err.println("Could not add " + channel + " to the live subscription (" + e.getMessage() + ") - subscribing on reconnect");
+			}
+		}
+	}
+
+	/**
+	 * Open the subscriber connection for every registered channel. Reconnects with backoff if the
+	 * connection drops.
+	 */
+	public synchronized void start() {
+		if (running) return;
+		running = true;
+
+		if (BMCManager.getEventTransport() == EventTransport.STREAMS) {
+			String identity = BMCManager.shardCoordinator.getIdentity();
+			// Sharded replicas each filter events by ownership, so each needs every event - one group
+			// per replica. Otherwise replicas share a group and split the work between them.
+			boolean perReplica = BMCManager.shardCoordinator.isEnabled();
+			String group = perReplica ? STREAM_GROUP + "-" + identity : STREAM_GROUP;
+			streamSubscriber = new StreamSubscriber(this, group, identity, perReplica ? STREAM_GROUP + "-" : null,
+				BMCManager.getStreamBatchSize());
+			routes.keySet().forEach(streamSubscriber::addChannel);
+			streamSubscriber.start();
+			return;
+		}
+
+		if (RedisManager.get().isShardedPubSub()) {
+			shardedSubscriber = new ShardedSubscriber(this);
+			routes.keySet().forEach(shardedSubscriber::addChannel);
+			shardedSubscriber.start();
+			return;
+		}
+
+		subscriberThread = new Thread(() -> {
+			long delay = RECONNECT_DELAY_MS;
+			while (running) {
+				try {
+					String[] channels = routes.keySet().toArray(new String[0]);
+					System.out.println("Subscribing to " + channels.length + " Redis channel(s) on one connection");
+					RedisManager.get().subscribe(pubSub, channels);
+					delay = RECONNECT_DELAY_MS;
+				} catch (Exception e) {
+					if (!running) break;
+					System.err.println("Redis subscription lost: " + e.getMessage() + " - reconnecting in " + delay + "ms");
+				}
+
+				try {
+					Thread.sleep(delay);
+				} catch (InterruptedException e) {
+					break;
+				}
+				delay = Math.min(delay * 2, MAX_RECONNECT_DELAY_MS);
+			}
+		}, "redis-subscriber");
+		subscriberThread.start();
+	}
+
+	/**
+	 * Queue a message for its channel's handler. Never blocks the caller.
+	 *
+	 * @param onHandled run after the handler has finished, whether or not it threw; may be null
+	 * @return false if the channel's queue was full and the message was dropped - onHandled is not run
+	 */
+	boolean dispatch(String channel, String message, Runnable onHandled) {
+		ChannelRoute route = routes.get(channel);
+		if (route == null) {
+			if (onHandled != null) onHandled.run();
+			return true;
+		}
+
+		route.received.increment();
+		try {
+			route.executor.execute(() -> {
+				route.handle(message);
+				if (onHandled != null) onHandled.run();
+			});
+		} catch (RejectedExecutionException e) {
+			route.dropped.increment();
+			if (!route.overflowing && !route.executor.isShutdown()) {
+				System.err.println("Handler queue for " + channel + " is full - dropping messages until it drains");
+			}
+			route.overflowing = true;
+			return false;
+		}
+		route.overflowing = false;
+		return true;
+	}
+
+	/**
+	 * Whether the channel's queue can take this many more messages, for readers that can wait
+	 * instead of dropping.
+	 */
+	boolean hasRoom(String channel, int count) {
+		ChannelRoute route = routes.get(channel);
+		return route == null || route.executor.getQueue().remainingCapacity() >= Math.min(count, QUEUE_CAPACITY);
+	}
+
+	public void shutdown() {
+		running = false;
+		if (streamSubscriber != null) streamSubscriber.shutdown();
+		if (shardedSubscriber != null) shardedSubscriber.shutdown();
+		if (pubSub.isSubscribed()) pubSub.unsubscribe();
+		for (ChannelRoute route : routes.values()) {
+			route.executor.shutdown();
+		}
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		out.append("# HELP bmc_pubsub_queue_depth Messages waiting for a handler, per channel.\n");
+		out.append("# TYPE bmc_pubsub_queue_depth gauge\n");
+		for (ChannelRoute route : routes.values()) {
+			out.append("bmc_pubsub_queue_depth{channel=\"").append(route.channel).append("\"} ")
+				.append(route.executor.getQueue().size()).append('\n');
+		}
+
+		out.append("# HELP bmc_pubsub_messages_total Messages received, per channel.\n");
+		out.append("# TYPE bmc_pubsub_messages_total counter\n");
+		for (ChannelRoute route : routes.values()) {
+			out.append("bmc_pubsub_messages_total{channel=\"").append(route.channel).append("\"} ")
+				.append(route.received.sum()).append('\n');
+		}
+
+		out.append("# HELP bmc_pubsub_dropped_total Messages dropped because the channel's queue was full, per channel.\n");
+		out.append("# TYPE bmc_pubsub_dropped_total counter\n");
+		for (ChannelRoute route : routes.values()) {
+			out.append("bmc_pubsub_dropped_total{channel=\"").append(route.channel).append("\"} ")
+				.append(route.dropped.sum()).append('\n');
+		}
+
+		out.append("# HELP bmc_pubsub_handler_errors_total Messages whose handler threw, per channel.\n");
+		out.append("# TYPE bmc_pubsub_handler_errors_total counter\n");
+		for (ChannelRoute route : routes.values()) {
+			out.append("bmc_pubsub_handler_errors_total{channel=\"").append(route.channel).append("\"} ")
+				.append(route.errors.sum()).append('\n');
+		}
+
+		out.append("# HELP bmc_pubsub_handler_duration_seconds Time spent handling a message, per channel.\n");
+		out.append("# TYPE bmc_pubsub_handler_duration_seconds histogram\n");
+		for (ChannelRoute route : routes.values()) {
+			route.latency.writeTo(out, "bmc_pubsub_handler_duration_seconds", "channel=\"" + route.channel + "\"");
+		}
+	}
+
+	private static class ChannelRoute {
+		final String channel;
+		final Consumer<String> handler;
+		final ThreadPoolExecutor executor;
+		final LongAdder received = new LongAdder();
+		final LongAdder errors = new LongAdder();
+		final LongAdder dropped = new LongAdder();
+		final Histogram latency = new Histogram();
+		// Dropping since the last message that fit - logged once per overflow
+		volatile boolean overflowing;
+
+		ChannelRoute(String channel, int workers, Consumer<String> handler) {
+			this.channel = channel;
+			this.handler = handler;
+
+			int threads = Math.max(1, workers);
+			// Rejects when full, so one slow channel never stalls the reader shared by all of them
+			this.executor = new ThreadPoolExecutor(threads, threads, 0L, TimeUnit.MILLISECONDS,
+				new ArrayBlockingQueue<>(QUEUE_CAPACITY),
+				r -> new Thread(r, "pubsub-" + channel),
+				new ThreadPoolExecutor.AbortPolicy());
+		}
+
+		void handle(String message) {
+			long start = System.nanoTime();
+			try {
+				handler.accept(message);
+			} catch (Exception e) {
+				errors.increment();
+				System.err.println("Error handling message on " + channel + ": " + e.getMessage());
+				e.printStackTrace();
+			} finally {
+				latency.record(System.nanoTime() - start);
+			}
+		}
+	}
+}
@@ -0,0 +1,98 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Persists changes to the in-memory fleet model to Redis off the event handlers' threads.
+ *
+ * Every write for a deployment runs on the same lane, one at a time and in the order it was
+ * submitted, so Redis sees a deployment's changes in the order the model made them. Reloads of
+ * a deployment from Redis go through its lane too, after any writes still queued ahead of them.
+ * Different deployments spread over a few lanes and don't wait on each other.
+ */
+public class WriteBehindQueue implements MetricsSource {
+	private static WriteBehindQueue instance;
+
+	private static final int LANES = 4;
+
+	private final ExecutorService[] lanes = new ExecutorService[LANES];
+	private final AtomicInteger pending = new AtomicInteger();
+	private final LongAdder submitted = new LongAdder();
+	private final LongAdder failed = new LongAdder();
+
+	private WriteBehindQueue() {
+		for (int i = 0; i < LANES; i++) {
+			String threadName = "redis-write-behind-" + i;
+			lanes[i] = Executors.newSingleThreadExecutor(r -> new Thread(r, threadName));
+		}
+	}
+
+	public static synchronized WriteBehindQueue get() {
+		if (instance == null) {
+			instance = new WriteBehindQueue();
+		}
+		return instance;
+	}
+
+	/**
+	 * Run a write on the deployment's lane.
+	 *
+	 * @return completes once the write has run, exceptionally if it threw
+	 */
+	public CompletableFuture<Void> submit(String deployment, Runnable write) {
+		pending.incrementAndGet();
+		submitted.increment();
+		try {
+			return CompletableFuture.runAsync(write, lane(deployment)).whenComplete((result, error) -> {
+				pending.decrementAndGet();
+				if (error != null) failed.increment();
+			});
+		} catch (RejectedExecutionException e) {
+			pending.decrementAndGet();
+			failed.increment();
+			return CompletableFuture.failedFuture(e);
+		}
+	}
+
+	private ExecutorService lane(String deployment) {
+		return lanes[Math.floorMod(deployment.hashCode(), LANES)];
+	}
+
+	/**
+	 * Stop taking writes and wait for the queued ones to reach Redis.
+	 */
+	public void shutdown() {
+		for (ExecutorService lane : lanes) {
+			lane.shutdown();
+		}
+		try {
+			for (ExecutorService lane : lanes) {
+				if (!lane.awaitTermination(5, TimeUnit.SECONDS)) {
+					System.err.println("Gave up waiting for queued Redis writes - " + pending.get() + " left unwritten");
+					return;
+				}
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		out.append("# HELP bmc_write_behind_submitted_total Fleet model changes and reloads queued for Redis.\n");
+		out.append("# TYPE bmc_write_behind_submitted_total counter\n");
+		out.append("bmc_write_behind_submitted_total ").append(submitted.sum()).append('\n');
+
+		out.append("# HELP bmc_write_behind_failures_total Queued writes or reloads that failed.\n");
+		out.append("# TYPE bmc_write_behind_failures_total counter\n");
+		out.append("bmc_write_behind_failures_total ").append(failed.sum()).append('\n');
+
+		out.append("# HELP bmc_write_behind_pending Writes and reloads queued or running.\n");
+		out.append("# TYPE bmc_write_behind_pending gauge\n");
+		out.append("bmc_write_behind_pending ").append(pending.get()).append('\n');
+	}
+}
@@ -0,0 +1,242 @@
+package dev.kyriji.bmcmanager.controllers;
+
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+import dev.kyriji.bmcmanager.metrics.Histogram;
+import redis.clients.jedis.AbstractPipeline;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Batches small fire-and-forget Redis writes - hash fields and publishes - into one pipeline.
+ *
+ * Writes are queued and a flusher thread sends them once the first queued write is a window
+ * old (or the batch is full). Writes to the same hash field within a window collapse into the
+ * last one. Within a batch every hash write is sent before any publish, and publishes keep
+ * their order, so a message never arrives ahead of the data it announces. Where publishes
+ * can't share the pipeline (a cluster, or sharded pub/sub) they follow once it is synced.
+ *
+ * Callers get a future that completes once the batch is acknowledged by Redis.
+ */
+public class WriteCoalescer implements MetricsSource {
+	private static final int MAX_BATCH_WRITES = 1000;
+
+	private final long windowNanos;
+	private final Object lock = new Object();
+	private Batch current = new Batch();
+	private volatile boolean running;
+	private Thread flusherThread;
+
+	private final LongAdder queued = new LongAdder();
+	private final LongAdder coalesced = new LongAdder();
+	private final LongAdder flushes = new LongAdder();
+	private final LongAdder flushedCommands = new LongAdder();
+	private final LongAdder failedFlushes = new LongAdder();
+	private final Histogram flushDuration = new Histogram();
+	private final Histogram writeDelay = new Histogram();
+
+	public WriteCoalescer(long windowMs) {
+		this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+	}
+
+	public void start() {
+		running = true;
+		flusherThread = new Thread(this::runFlusher, "redis-write-flusher");
+		flusherThread.start();
+	}
+
+	public CompletableFuture<Void> hset(String key, Map<String, String> fields) {
+		synchronized (lock) {
+			Map<String, String> pending = current.hashWrites.computeIfAbsent(key, k -> new LinkedHashMap<>());
+			for (Map.Entry<String, String> field : fields.entrySet()) {
+				if (pending.containsKey(field.getKey())) coalesced.increment();
+				pending.put(field.getKey(), Objects.requireNonNull(field.getValue()));
+			}
+			return enqueue(fields.size());
+		}
+	}
+
+	public CompletableFuture<Void> hdel(String key, String... fields) {
+		synchronized (lock) {
+			Map<String, String> pending = current.hashWrites.computeIfAbsent(key, k -> new LinkedHashMap<>());
+			for (String field : fields) {
+				if (pending.containsKey(field)) coalesced.increment();
+				// null marks a delete
+				pending.put(field, null);
+			}
+			return enqueue(fields.length);
+		}
+	}
+
+	public CompletableFuture<Void> publish(String channel, String message) {
+		synchronized (lock) {
+			current.publishes.add(new String[]{channel, message});
+			return enqueue(1);
+		}
+	}
+
+	// Caller holds the lock
+	private CompletableFuture<Void> enqueue(int writes) {
+		if (current.writes == 0) {
+			current.firstQueuedNanos = System.nanoTime();
+			lock.notifyAll();
+		}
+		current.writes += writes;
+		queued.add(writes);
+		if (current.writes >= MAX_BATCH_WRITES) lock.notifyAll();
+
+		// Each caller gets its own view, so one caller can't complete the batch for everyone
+		return current.done.copy();
+	}
+
+	private void runFlusher() {
+		while (true) {
+			Batch batch;
+			synchronized (lock) {
+				try {
+					while (running && current.writes == 0) {
+						lock.wait();
+					}
+					if (current.writes == 0) return;
+
+					long remaining;
+					while (running && current.writes < MAX_BATCH_WRITES &&
+						(remaining = current.firstQueuedNanos + windowNanos - System.nanoTime()) > 0) {
+						TimeUnit.NANOSECONDS.timedWait(lock, remaining);
+					}
+				} catch (InterruptedException e) {
+					// Shutting down - flush what is queued below
+				}
+
+				batch = current;
+				current = new Batch();
+			}
+			flush(batch);
+		}
+	}
+
+	private void flush(Batch batch) {
+		long start = System.nanoTime();
+		int[] commands = {0};
+		try {
+			RedisManager redis = RedisManager.get();
+			boolean pipelinePublishes = redis.canPipelinePublishes();
+			redis.withRedis(jedis -> {
+				try (AbstractPipeline pipeline = jedis.pipelined()) {
+					for (Map.Entry<String, Map<String, String>> entry : batch.hashWrites.entrySet()) {
+						Map<String, String> sets = new HashMap<>();
+						List<String> deletes = new ArrayList<>();
+						for (Map.Entry<String, String> field : entry.getValue().entrySet()) {
+							if (field.getValue() != null) sets.put(field.getKey(), field.getValue());
+							else deletes.add(field.getKey());
+						}
+						if (!sets.isEmpty()) {
+							pipeline.hset(entry.getKey(), sets);
+							commands[0]++;
+						}
+						if (!deletes.isEmpty()) {
+							pipeline.hdel(entry.getKey(), deletes.toArray(new String[0]));
+							commands[0]++;
+						}
+					}
+					if (pipelinePublishes) {
+						for (String[] publish : batch.publishes) {
+							pipeline.publish(publish[0], publish[1]);
+							commands[0]++;
+						}
+					}
+					pipeline.sync();
+				}
+			});
+
+			// Cluster or sharded pub/sub - publish once the writes they announce are acknowledged
+			if (!pipelinePublishes) {
+				for (String[] publish : batch.publishes) {
+					redis.publish(publish[0], publish[1]);
+					commands[0]++;
+				}
+			}
+		} catch (Exception e) {
+			failedFlushes.increment();
+			System.err.println("Failed to flush " + batch.writes + " queued Redis write(s): " + e.getMessage());
+			batch.done.completeExceptionally(e);
+			return;
+		} finally {
+			RedisManager.get().invalidateCached(batch.hashWrites.keySet().toArray(new String[0]));
+		}
+
+		long end = System.nanoTime();
+		flushes.increment();
+		flushedCommands.add(commands[0]);
+		flushDuration.record(end - start);
+		writeDelay.record(end - batch.firstQueuedNanos);
+		batch.done.complete(null);
+	}
+
+	/**
+	 * Stop accepting the flush window and send whatever is still queued.
+	 */
+	public void shutdown() {
+		synchronized (lock) {
+			running = false;
+			lock.notifyAll();
+		}
+		if (flusherThread == null) return;
+		try {
+			flusherThread.join(TimeUnit.SECONDS.toMillis(5));
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		int pending;
+		synchronized (lock) {
+			pending = current.writes;
+		}
+
+		out.append("# HELP bmc_redis_writes_queued_total Writes queued for batching.\n");
+		out.append("# TYPE bmc_redis_writes_queued_total counter\n");
+		out.append("bmc_redis_writes_queued_total ").append(queued.sum()).append('\n');
+
+		out.append("# HELP bmc_redis_writes_coalesced_total Queued writes replaced by a later write to the same field.\n");
+		out.append("# TYPE bmc_redis_writes_coalesced_total counter\n");
+		out.append("bmc_redis_writes_coalesced_total ").append(coalesced.sum()).append('\n');
+
+		out.append("# HELP bmc_redis_write_flushes_total Batches sent to Redis.\n");
+		out.append("# TYPE bmc_redis_write_flushes_total counter\n");
+		out.append("bmc_redis_write_flushes_total ").append(flushes.sum()).append('\n');
+
+		out.append("# HELP bmc_redis_write_flushed_commands_total Commands sent in batches, after coalescing.\n");
+		out.append("# TYPE bmc_redis_write_flushed_commands_total counter\n");
+		out.append("bmc_redis_write_flushed_commands_total ").append(flushedCommands.sum()).append('\n');
+
+		out.append("# HELP bmc_redis_write_flush_failures_total Batches that failed to send.\n");
+		out.append("# TYPE bmc_redis_write_flush_failures_total counter\n");
+		out.append("bmc_redis_write_flush_failures_total ").append(failedFlushes.sum()).append('\n');
+
+		out.append("# HELP bmc_redis_writes_pending Writes waiting for the next flush.\n");
+		out.append("# TYPE bmc_redis_writes_pending gauge\n");
+		out.append("bmc_redis_writes_pending ").append(pending).append('\n');
+
+		out.append("# HELP bmc_redis_write_flush_duration_seconds Round trip of one batch.\n");
+		out.append("# TYPE bmc_redis_write_flush_duration_seconds histogram\n");
+		flushDuration.writeTo(out, "bmc_redis_write_flush_duration_seconds", "");
+
+		out.append("# HELP bmc_redis_write_delay_seconds Time from the first write of a batch being queued to the batch being acknowledged.\n");
+		out.append("# TYPE bmc_redis_write_delay_seconds histogram\n");
+		writeDelay.writeTo(out, "bmc_redis_write_delay_seconds", "");
+	}
+
+	private static class Batch {
+		// key -> field -> value, null for a delete
+		final Map<String, Map<String, String>> hashWrites = new LinkedHashMap<>();
+		final List<String[]> publishes = new ArrayList<>();
+		final CompletableFuture<Void> done = new CompletableFuture<>();
+		long firstQueuedNanos;
+		int writes;
+	}
+}
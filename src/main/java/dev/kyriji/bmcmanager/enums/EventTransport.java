@@ -0,0 +1,17 @@
+package dev.kyriji.bmcmanager.enums;
+
+public enum EventTransport {
+
+	PUBSUB,
+	STREAMS,
+	;
+
+	public static EventTransport getTransport(String transport) {
+		for (EventTransport eventTransport : values()) {
+			if (eventTransport.name().equalsIgnoreCase(transport)) {
+				return eventTransport;
+			}
+		}
+		return null;
+	}
+}
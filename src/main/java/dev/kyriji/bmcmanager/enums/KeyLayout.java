@@ -0,0 +1,19 @@
+package dev.kyriji.bmcmanager.enums;
+
+public enum KeyLayout {
+
+	// instance:<uid>:<deployment> - what the API reads today
+	LEGACY,
+	// instance:{<deployment>}:<uid> - a deployment's keys share one cluster hash slot
+	TAGGED,
+	;
+
+	public static KeyLayout getLayout(String layout) {
+		for (KeyLayout keyLayout : values()) {
+			if (keyLayout.name().equalsIgnoreCase(layout)) {
+				return keyLayout;
+			}
+		}
+		return null;
+	}
+}
@@ -0,0 +1,21 @@
+package dev.kyriji.bmcmanager.enums;
+
+public enum ReconcilePhase {
+
+	FETCH("fetch"),
+	REDIS("redis"),
+	POD_COUNT("pod_count"),
+	DECISION("decision"),
+	EXECUTE("execute"),
+	;
+
+	private final String label;
+
+	ReconcilePhase(String label) {
+		this.label = label;
+	}
+
+	public String getLabel() {
+		return label;
+	}
+}
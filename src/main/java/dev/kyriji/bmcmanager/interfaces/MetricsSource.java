@@ -0,0 +1,8 @@
+package dev.kyriji.bmcmanager.interfaces;
+
+/**
+ * Something that contributes metrics to the /metrics endpoint, in Prometheus text format.
+ */
+public interface MetricsSource {
+	void writeMetrics(StringBuilder out);
+}
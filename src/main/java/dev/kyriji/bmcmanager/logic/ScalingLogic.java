@@ -1,11 +1,12 @@
 package dev.kyriji.bmcmanager.logic;
 
 import dev.kyriji.bigminecraftapi.enums.InstanceState;
-import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
 import dev.kyriji.bmcmanager.enums.ScaleResult;
 import dev.kyriji.bmcmanager.enums.ScaleStrategy;
+import dev.kyriji.bmcmanager.objects.CountedMinecraftInstance;
 import dev.kyriji.bmcmanager.objects.GameServerWrapper;
+import dev.kyriji.bmcmanager.objects.InstanceSnapshot;
 import dev.kyriji.bmcmanager.objects.ScalingDecision;
 import dev.kyriji.bmcmanager.objects.ScalingSettings;
 
@@ -22,6 +23,8 @@ public class ScalingLogic {
 	public ScalingDecision determineScalingAction(GameServerWrapper<MinecraftInstance> gameServerWrapper, int currentPodCount) {
 		ScalingSettings settings = gameServerWrapper.getScalingSettings();
 		ScaleStrategy strategy = settings.strategy;
+		// Every count below comes from this one fetch
+		InstanceSnapshot<MinecraftInstance> snapshot = gameServerWrapper.getSnapshot();
 
 		if (DEBUG_SCALING) {
 			System.out.println("\n========== SCALING DECISION START ==========");
@@ -29,14 +32,14 @@ public class ScalingLogic {
 			System.out.println("Strategy: " + strategy);
 			System.out.println("Current pod count from K8s: " + currentPodCount);
 			System.out.println("All instances in wrapper:");
-			for (MinecraftInstance inst : gameServerWrapper.getInstances()) {
-				System.out.println("  - " + inst.getName() + " (" + inst.getPodName() + "): state=" + inst.getState() + ", players=" + inst.getPlayers().size());
+			for (MinecraftInstance inst : snapshot.getInstances()) {
+				System.out.println("  - " + inst.getName() + " (" + inst.getPodName() + "): state=" + inst.getState() + ", players=" + CountedMinecraftInstance.playerCount(inst));
 			}
 		}
 
 		// If K8s already has enough pods, don't create more even if Redis hasn't caught up
 		// Only wait if Redis shows NO instances at all (not yet discovered)
-		int totalInstancesInRedis = gameServerWrapper.getInstances().size();
+		int totalInstancesInRedis = snapshot.size();
 		if (currentPodCount >= settings.minInstances && totalInstancesInRedis == 0 && currentPodCount > 0) {
 			if (DEBUG_SCALING) {
 				System.out.println("K8s has " + currentPodCount + " pods but Redis shows 0 instances - waiting for discovery");
@@ -47,12 +50,12 @@ public class ScalingLogic {
 
 		// Check what scaling action is needed
 		ScaleResult result = switch(strategy) {
-			case THRESHOLD -> checkToScaleThreshold(gameServerWrapper);
+			case THRESHOLD -> checkToScaleThreshold(gameServerWrapper, snapshot);
 			case TREND -> checkToScaleTrend(gameServerWrapper);
 		};
 
-		int totalInstances = getTotalNonTerminatingInstanceCount(gameServerWrapper);
-		int activeInstances = getActiveInstanceCount(gameServerWrapper);
+		int totalInstances = snapshot.getNonTerminatingCount();
+		int activeInstances = snapshot.getActiveCount();
 
 		if (DEBUG_SCALING) {
 			System.out.println("Total instances: " + totalInstances);
@@ -99,7 +102,7 @@ public class ScalingLogic {
 		}
 
 		// Calculate target replicas
-		int targetReplicas = calculateTargetReplicas(gameServerWrapper, result);
+		int targetReplicas = calculateTargetReplicas(gameServerWrapper, snapshot, result);
 
 		// If target equals current, no change needed
 		if(targetReplicas == totalInstances) {
@@ -116,7 +119,7 @@ public class ScalingLogic {
 			if (DEBUG_SCALING) {
 				System.out.println("Scaling DOWN: " + totalInstances + " -> " + targetReplicas + " (removing " + podsToRemove + " instances)");
 			}
-			List<MinecraftInstance> podsToDelete = selectPodsForScaleDown(gameServerWrapper.getInstances(), podsToRemove);
+			List<MinecraftInstance> podsToDelete = selectPodsForScaleDown(snapshot.getInstances(), podsToRemove);
 			if (DEBUG_SCALING) {
 				System.out.println("========== SCALING DECISION END (SCALE DOWN) ==========\n");
 			}
@@ -140,12 +143,14 @@ public class ScalingLogic {
 		}
 	}
 
-	private ScaleResult checkToScaleThreshold(GameServerWrapper<MinecraftInstance> gameServerWrapper) {
-		int totalInstances = getTotalNonTerminatingInstanceCount(gameServerWrapper);
-		int activeInstances = getActiveInstanceCount(gameServerWrapper);
-		int runningInstances = getRunningInstanceCount(gameServerWrapper);
+	private ScaleResult checkToScaleThreshold(GameServerWrapper<MinecraftInstance> gameServerWrapper, InstanceSnapshot<MinecraftInstance> snapshot) {
+		int totalInstances = snapshot.getNonTerminatingCount();
+		// Active = RUNNING + STARTING (provisioned capacity); BLOCKED, STOPPING and STOPPED don't count
+		int activeInstances = snapshot.getActiveCount();
+		// RUNNING only - used for scale-down, so we don't scale down while new capacity is still starting
+		int runningInstances = snapshot.getRunningCount();
 		int startingInstances = activeInstances - runningInstances;
-		int playerCount = getPlayerCount(gameServerWrapper);
+		int playerCount = snapshot.getPlayerCount();
 		ScalingSettings settings = gameServerWrapper.getScalingSettings();
 
 		if (DEBUG_SCALING) {
@@ -161,7 +166,7 @@ public class ScalingLogic {
 		// at a time. If an instance is draining, block scale-up until it is fully gone so the
 		// replacement pod does not fail trying to claim the still-held volume.
 		if ("PERSISTENT".equals(gameServerWrapper.getDeploymentType()) &&
-				hasDrainingInstances(gameServerWrapper)) {
+				snapshot.hasDraining()) {
 			if (DEBUG_SCALING) {
 				System.out.println("Decision: NO CHANGE (PERSISTENT deployment has a draining instance - waiting for volume release)");
 				System.out.println("--- End Threshold Check ---");
@@ -234,9 +239,9 @@ public class ScalingLogic {
 		return ScaleResult.NO_CHANGE;
 	}
 
-	private int calculateTargetReplicas(GameServerWrapper<MinecraftInstance> gameServerWrapper, ScaleResult result) {
-		int activeCurrentInstances = getActiveInstanceCount(gameServerWrapper);
-		int playerCount = getPlayerCount(gameServerWrapper);
+	private int calculateTargetReplicas(GameServerWrapper<MinecraftInstance> gameServerWrapper, InstanceSnapshot<MinecraftInstance> snapshot, ScaleResult result) {
+		int activeCurrentInstances = snapshot.getActiveCount();
+		int playerCount = snapshot.getPlayerCount();
 		int instancesToAdd = 0;
 
 		ScalingSettings settings = gameServerWrapper.getScalingSettings();
@@ -312,7 +317,7 @@ public class ScalingLogic {
 		// Calculate target replicas = total non-terminating instances + instances to add/remove
 		// instancesToAdd is based on ACTIVE (RUNNING+STARTING) instances, but we add to total count
 		// This ensures we account for BLOCKED/STARTING instances (but NOT STOPPING/STOPPED)
-		int targetReplicas = getTotalNonTerminatingInstanceCount(gameServerWrapper) + instancesToAdd;
+		int targetReplicas = snapshot.getNonTerminatingCount() + instancesToAdd;
 
 		// CRITICAL SAFETY CHECK: Never allow target to go below minInstances
 		// This is a defensive check in case the logic above miscalculates
@@ -350,13 +355,13 @@ public class ScalingLogic {
 			System.out.println("  Total instances: " + instances.size());
 			System.out.println("  RUNNING candidates: " + candidates.size());
 			candidates.forEach(instance ->
-				System.out.println("    Candidate: " + instance.getName() + ", Players: " + instance.getPlayers().size() + ", State: " + instance.getState())
+				System.out.println("    Candidate: " + instance.getName() + ", Players: " + CountedMinecraftInstance.playerCount(instance) + ", State: " + instance.getState())
 			);
 		}
 
 		// Sort by player count (ascending) - instances with fewest players first
 		List<MinecraftInstance> sortedCandidates = new ArrayList<>(candidates);
-		sortedCandidates.sort(Comparator.comparingInt(instance -> instance.getPlayers().size()));
+		sortedCandidates.sort(Comparator.comparingInt(CountedMinecraftInstance::playerCount));
 
 		// Take the first N candidates (those with fewest players)
 		int toRemove = Math.min(count, sortedCandidates.size());
@@ -364,52 +369,11 @@ public class ScalingLogic {
 		if (DEBUG_SCALING) {
 			System.out.println("Selected " + toRemove + " instances for removal:");
 			sortedCandidates.subList(0, toRemove).forEach(instance ->
-				System.out.println("    -> " + instance.getName() + " (" + instance.getPodName() + "), Players: " + instance.getPlayers().size())
+				System.out.println("    -> " + instance.getName() + " (" + instance.getPodName() + "), Players: " + CountedMinecraftInstance.playerCount(instance))
 			);
 			System.out.println("--- End Selecting Pods ---");
 		}
 
 		return new ArrayList<>(sortedCandidates.subList(0, toRemove));
 	}
-
-	private int getPlayerCount(GameServerWrapper<MinecraftInstance> gameServerWrapper) {
-		List<MinecraftInstance> instances = gameServerWrapper.getInstances();
-		return instances.stream().mapToInt(instance -> instance.getPlayers().size()).sum();
-	}
-
-	private int getActiveInstanceCount(GameServerWrapper<? extends Instance> gameServerWrapper) {
-		// Count RUNNING and STARTING instances as "active" for minimum instance checks
-		// STARTING instances are provisioned capacity that will soon be RUNNING
-		// BLOCKED, STOPPING, and STOPPED instances don't count
-		return (int) gameServerWrapper.getInstances().stream()
-			.filter(instance ->
-				instance.getState() == InstanceState.RUNNING ||
-				instance.getState() == InstanceState.STARTING)
-			.count();
-	}
-
-	private int getRunningInstanceCount(GameServerWrapper<? extends Instance> gameServerWrapper) {
-		// Count only RUNNING instances - used for scale-down decisions
-		// This ensures we don't scale down while new capacity is still starting
-		return (int) gameServerWrapper.getInstances().stream()
-			.filter(instance -> instance.getState() == InstanceState.RUNNING)
-			.count();
-	}
-
-	private int getTotalNonTerminatingInstanceCount(GameServerWrapper<? extends Instance> gameServerWrapper) {
-		// Count all instances EXCEPT those that are shutting down or already accepted shutdown
-		// DRAINING = shutdown accepted by manager, going away soon (like STOPPING)
-		// BLOCKED = game in progress set by server, still real active capacity - included
-		return (int) gameServerWrapper.getInstances().stream()
-			.filter(instance ->
-				instance.getState() != InstanceState.DRAINING &&
-				instance.getState() != InstanceState.STOPPING &&
-				instance.getState() != InstanceState.STOPPED)
-			.count();
-	}
-
-	private boolean hasDrainingInstances(GameServerWrapper<? extends Instance> gameServerWrapper) {
-		return gameServerWrapper.getInstances().stream()
-			.anyMatch(instance -> instance.getState() == InstanceState.DRAINING);
-	}
 }
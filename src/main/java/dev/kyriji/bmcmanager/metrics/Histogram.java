@@ -0,0 +1,58 @@
+package dev.kyriji.bmcmanager.metrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket latency histogram.
+ *
+ * Recording is a bucket scan plus two LongAdder increments - no locks and no allocation,
+ * so it is safe to call from every reconcile. Buckets are exported cumulatively in seconds,
+ * as Prometheus expects.
+ */
+public class Histogram {
+	// Upper bounds in seconds, the last bucket (+Inf) is implicit
+	private static final double[] BOUNDS_SECONDS = {0.001, 0.0025, 0.005, 0.01, 0.025, 0.05, 0.1, 0.25, 0.5, 1, 2.5, 5, 10};
+	private static final long[] BOUNDS_NANOS = new long[BOUNDS_SECONDS.length];
+
+	static {
+		for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+			BOUNDS_NANOS[i] = (long) (BOUNDS_SECONDS[i] * 1_000_000_000L);
+		}
+	}
+
+	private final LongAdder[] buckets = new LongAdder[BOUNDS_NANOS.length + 1];
+	private final LongAdder sumNanos = new LongAdder();
+
+	public Histogram() {
+		for (int i = 0; i < buckets.length; i++) {
+			buckets[i] = new LongAdder();
+		}
+	}
+
+	public void record(long nanos) {
+		int i = 0;
+		while (i < BOUNDS_NANOS.length && nanos > BOUNDS_NANOS[i]) i++;
+		buckets[i].increment();
+		sumNanos.add(nanos);
+	}
+
+	/**
+	 * Write the _bucket, _sum and _count series. labels is the inner label list (without braces)
+	 * shared by every series, e.g. {@code gameserver="lobby"}.
+	 */
+	public void writeTo(StringBuilder out, String name, String labels) {
+		String prefix = labels.isEmpty() ? "" : labels + ",";
+		long cumulative = 0;
+		for (int i = 0; i < BOUNDS_SECONDS.length; i++) {
+			cumulative += buckets[i].sum();
+			out.append(name).append("_bucket{").append(prefix).append("le=\"").append(BOUNDS_SECONDS[i]).append("\"} ")
+				.append(cumulative).append('\n');
+		}
+		cumulative += buckets[BOUNDS_SECONDS.length].sum();
+		out.append(name).append("_bucket{").append(prefix).append("le=\"+Inf\"} ").append(cumulative).append('\n');
+
+		String braced = labels.isEmpty() ? "" : "{" + labels + "}";
+		out.append(name).append("_sum").append(braced).append(' ').append(sumNanos.sum() / 1e9).append('\n');
+		out.append(name).append("_count").append(braced).append(' ').append(cumulative).append('\n');
+	}
+}
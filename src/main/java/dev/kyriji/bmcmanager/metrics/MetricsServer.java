@@ -0,0 +1,73 @@
+package dev.kyriji.bmcmanager.metrics;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+
+/**
+ * Serves every registered MetricsSource on /metrics in Prometheus text format, using the
+ * JDK's built-in HTTP server so no extra dependency is needed.
+ */
+public class MetricsServer {
+	private static final String CONTENT_TYPE = "text/plain; version=0.0.4; charset=utf-8";
+
+	private final int port;
+	private final List<MetricsSource> sources = new CopyOnWriteArrayList<>();
+	private HttpServer server;
+
+	public MetricsServer(int port) {
+		this.port = port;
+	}
+
+	public void register(MetricsSource source) {
+		sources.add(source);
+	}
+
+	public void start() {
+		try {
+			server = HttpServer.create(new InetSocketAddress(port), 0);
+		} catch (IOException e) {
+			System.err.println("Failed to start metrics server on port " + port + ": " + e.getMessage());
+			return;
+		}
+
+		server.createContext("/metrics", this::handle);
+		server.setExecutor(Executors.newSingleThreadExecutor(r -> {
+			Thread thread = new Thread(r, "metrics-server");
+			thread.setDaemon(true);
+			return thread;
+		}));
+		server.start();
+		System.out.println("Metrics available on :" + port + "/metrics");
+	}
+
+	private void handle(HttpExchange exchange) throws IOException {
+		StringBuilder out = new StringBuilder(16 * 1024);
+		for (MetricsSource source : sources) {
+			try {
+				source.writeMetrics(out);
+			} catch (Exception e) {
+				System.err.println("Error collecting metrics: " + e.getMessage());
+			}
+		}
+
+		byte[] body = out.toString().getBytes(StandardCharsets.UTF_8);
+		exchange.getResponseHeaders().set("Content-Type", CONTENT_TYPE);
+		exchange.sendResponseHeaders(200, body.length);
+		try (OutputStream os = exchange.getResponseBody()) {
+			os.write(body);
+		}
+	}
+
+	public void stop() {
+		if (server != null) server.stop(0);
+	}
+}
@@ -0,0 +1,38 @@
+package dev.kyriji.bmcmanager.metrics;
+
+import dev.kyriji.bmcmanager.controller.ReconciliationQueue;
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+
+/**
+ * Exports the reconciliation queue's depth and requeue lag.
+ */
+public class QueueMetrics implements MetricsSource {
+	private final ReconciliationQueue queue;
+
+	public QueueMetrics(ReconciliationQueue queue) {
+		this.queue = queue;
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		gauge(out, "bmc_reconcile_queue_depth", "Requests ready for a worker.", queue.size());
+		gauge(out, "bmc_reconcile_queue_in_flight", "Requests queued, being processed, or waiting out a delay.", queue.inFlightCount());
+		gauge(out, "bmc_reconcile_queue_processing", "Requests currently held by a worker.", queue.processingCount());
+		gauge(out, "bmc_reconcile_queue_delayed", "Requests waiting out a requeue delay or debounce window.", queue.delayedCount());
+		gauge(out, "bmc_reconcile_requeue_lag_last_seconds", "How late the most recent delayed request reached the queue.", queue.getLastSchedulingLagMs() / 1000.0);
+		gauge(out, "bmc_reconcile_requeue_lag_max_seconds", "Worst lateness of a delayed request since startup.", queue.getMaxSchedulingLagMs() / 1000.0);
+
+		out.append("# HELP bmc_reconcile_requeue_lag_seconds_total Total lateness of delayed requests.\n");
+		out.append("# TYPE bmc_reconcile_requeue_lag_seconds_total counter\n");
+		out.append("bmc_reconcile_requeue_lag_seconds_total ").append(queue.getTotalSchedulingLagMs() / 1000.0).append('\n');
+		out.append("# HELP bmc_reconcile_requeues_fired_total Delayed requests that reached the queue.\n");
+		out.append("# TYPE bmc_reconcile_requeues_fired_total counter\n");
+		out.append("bmc_reconcile_requeues_fired_total ").append(queue.getDelayedFiredCount()).append('\n');
+	}
+
+	private static void gauge(StringBuilder out, String name, String help, double value) {
+		out.append("# HELP ").append(name).append(' ').append(help).append('\n');
+		out.append("# TYPE ").append(name).append(" gauge\n");
+		out.append(name).append(' ').append(value).append('\n');
+	}
+}
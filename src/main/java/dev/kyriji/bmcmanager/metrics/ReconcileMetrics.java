@@ -0,0 +1,88 @@
+package dev.kyriji.bmcmanager.metrics;
+
+import dev.kyriji.bmcmanager.enums.ReconcilePhase;
+import dev.kyriji.bmcmanager.interfaces.MetricsSource;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Per-GameServer reconcile timings and outcomes.
+ *
+ * Each GameServer gets its recorders the first time it is reconciled; after that every
+ * record is a map lookup and a few LongAdder updates.
+ */
+public class ReconcileMetrics implements MetricsSource {
+	private static final ReconcileMetrics instance = new ReconcileMetrics();
+	private static final ReconcilePhase[] PHASES = ReconcilePhase.values();
+
+	private final Map<String, GameServerMetrics> gameServers = new ConcurrentHashMap<>();
+
+	private ReconcileMetrics() {
+	}
+
+	public static ReconcileMetrics get() {
+		return instance;
+	}
+
+	public void recordPhase(String gameServer, ReconcilePhase phase, long nanos) {
+		metricsFor(gameServer).phases[phase.ordinal()].record(nanos);
+	}
+
+	public void recordReconcile(String gameServer, long nanos, boolean error) {
+		GameServerMetrics metrics = metricsFor(gameServer);
+		metrics.total.record(nanos);
+		if (error) metrics.errors.increment();
+	}
+
+	/**
+	 * Drop a GameServer's series once it has been deleted or unregistered.
+	 */
+	public void remove(String gameServer) {
+		gameServers.remove(gameServer);
+	}
+
+	private GameServerMetrics metricsFor(String gameServer) {
+		GameServerMetrics metrics = gameServers.get(gameServer);
+		if (metrics != null) return metrics;
+		return gameServers.computeIfAbsent(gameServer, name -> new GameServerMetrics());
+	}
+
+	@Override
+	public void writeMetrics(StringBuilder out) {
+		out.append("# HELP bmc_reconcile_duration_seconds Time spent in a full reconcile.\n");
+		out.append("# TYPE bmc_reconcile_duration_seconds histogram\n");
+		for (Map.Entry<String, GameServerMetrics> entry : gameServers.entrySet()) {
+			entry.getValue().total.writeTo(out, "bmc_reconcile_duration_seconds", "gameserver=\"" + entry.getKey() + "\"");
+		}
+
+		out.append("# HELP bmc_reconcile_phase_duration_seconds Time spent in each phase of a reconcile.\n");
+		out.append("# TYPE bmc_reconcile_phase_duration_seconds histogram\n");
+		for (Map.Entry<String, GameServerMetrics> entry : gameServers.entrySet()) {
+			for (ReconcilePhase phase : PHASES) {
+				entry.getValue().phases[phase.ordinal()].writeTo(out, "bmc_reconcile_phase_duration_seconds",
+						"gameserver=\"" + entry.getKey() + "\",phase=\"" + phase.getLabel() + "\"");
+			}
+		}
+
+		out.append("# HELP bmc_reconcile_errors_total Reconciles that failed and were retried with backoff.\n");
+		out.append("# TYPE bmc_reconcile_errors_total counter\n");
+		for (Map.Entry<String, GameServerMetrics> entry : gameServers.entrySet()) {
+			out.append("bmc_reconcile_errors_total{gameserver=\"").append(entry.getKey()).append("\"} ")
+				.append(entry.getValue().errors.sum()).append('\n');
+		}
+	}
+
+	private static class GameServerMetrics {
+		final Histogram total = new Histogram();
+		final Histogram[] phases = new Histogram[PHASES.length];
+		final LongAdder errors = new LongAdder();
+
+		GameServerMetrics() {
+			for (int i = 0; i < phases.length; i++) {
+				phases[i] = new Histogram();
+			}
+		}
+	}
+}
@@ -0,0 +1,29 @@
+package dev.kyriji.bmcmanager.objects;
+
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+
+/**
+ * A MinecraftInstance carrying only its player count, not its roster.
+ *
+ * Rosters live in their own Redis hash and are only touched one player at a time, so the
+ * manager's reads never pull every player of every instance; the fleet model keeps the
+ * rosters of its instances itself and replaces the instance when its count changes. Use
+ * {@link #playerCount(MinecraftInstance)} rather than getPlayers().size() for counts.
+ */
+public class CountedMinecraftInstance extends MinecraftInstance {
+	private final int playerCount;
+
+	public CountedMinecraftInstance(String uid, String name, String podName, String ip, String deployment, int playerCount) {
+		super(uid, name, podName, ip, deployment);
+		this.playerCount = playerCount;
+	}
+
+	public int getPlayerCount() {
+		return playerCount;
+	}
+
+	public static int playerCount(MinecraftInstance instance) {
+		if (instance instanceof CountedMinecraftInstance counted) return counted.playerCount;
+		return instance.getPlayers().size();
+	}
+}
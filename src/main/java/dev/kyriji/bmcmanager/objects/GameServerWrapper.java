@@ -1,27 +1,64 @@
 package dev.kyriji.bmcmanager.objects;
 
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+import dev.kyriji.bigminecraftapi.enums.RedisChannel;
 import dev.kyriji.bigminecraftapi.objects.Instance;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+import dev.kyriji.bmcmanager.BMCManager;
+import dev.kyriji.bmcmanager.controllers.InstanceManager;
 import dev.kyriji.bmcmanager.controllers.RedisManager;
+import dev.kyriji.bmcmanager.controllers.WriteBehindQueue;
 import dev.kyriji.bmcmanager.crd.GameServer;
 import dev.kyriji.bmcmanager.crd.GameServerSpec;
 import dev.kyriji.bmcmanager.enums.QueueStrategy;
 import dev.kyriji.bmcmanager.interfaces.Scalable;
+import dev.kyriji.bmcmanager.utils.InstanceCodec;
+import dev.kyriji.bmcmanager.utils.SpecHash;
 
 import java.lang.reflect.ParameterizedType;
 import java.lang.reflect.Type;
-import java.util.ArrayList;
-import java.util.Collection;
-import java.util.List;
-import java.util.Objects;
-
+import java.util.*;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Predicate;
+
+/**
+ * A GameServer and the manager's model of its instances.
+ *
+ * The model is authoritative: the event handlers change it directly, and on the replica that
+ * owns the GameServer each change is then written to Redis through the {@link WriteBehindQueue}
+ * for the proxies and servers that read it there. Replicas that don't own it apply the same
+ * events to their own model without writing anything.
+ *
+ * The model is only read back from Redis when it is first loaded, when ownership changes, or
+ * when drift is detected - a write that Redis rejects or that doesn't land where the model
+ * expected, or an instance index whose size disagrees with the model.
+ */
 public abstract class GameServerWrapper<T extends Instance> implements Scalable {
+	private static final long DRIFT_CHECK_INTERVAL_MS = 30_000;
 
 	protected GameServer gameServer;
-	protected List<T> instances;
+	// Guarded by this; replaced whole by a reload
+	private Model<T> model = new Model<>();
+	// Changes made while a reload is reading Redis, applied again to what it read
+	private List<Predicate<Model<T>>> replay;
+	private long version;
+	// Rebuilt from the model after every change, never modified
+	private volatile InstanceSnapshot<T> snapshot = InstanceSnapshot.empty();
 	private final String name;
 
+	private volatile boolean loaded;
+	private volatile boolean loadedAsOwner;
+	private volatile boolean drifted;
+	private volatile long lastDriftCheck;
+	// Writes of this GameServer's changes still queued or running
+	private final AtomicInteger pendingWrites = new AtomicInteger();
+
 	private QueueStrategy queueStrategy;
 	private ScalingSettings scalingSettings;
+	// Spec the cached settings were built from
+	private Long observedGeneration;
+	private String observedSpecHash;
 
 	private long lastScaleUp = 0;
 	private long lastScaleDown = 0;
@@ -29,18 +66,11 @@ public abstract class GameServerWrapper<T extends Instance> implements Scalable
 
 	public GameServerWrapper(GameServer gameServer) {
 		this.gameServer = gameServer;
-		this.instances = new ArrayList<>();
 
 		this.name = gameServer.getMetadata().getName();
 
-		// Read queue strategy from CRD spec
-		GameServerSpec.QueuingSpec queuing = gameServer.getSpec().getQueuing();
-		this.queueStrategy = queuing != null
-				? QueueStrategy.getStrategy(queuing.getQueueStrategy())
-				: QueueStrategy.FILL;
-
-		// Read scaling settings from CRD spec
-		this.scalingSettings = new ScalingSettings(gameServer.getSpec().getScaling());
+		// Read queue strategy and scaling settings from CRD spec
+		applySpec(gameServer);
 
 		// Read enabled state from Redis (default true if not set)
 		String enabledStr = RedisManager.get().hget("deployment:" + name, "enabled");
@@ -51,23 +81,298 @@ public abstract class GameServerWrapper<T extends Instance> implements Scalable
 		return ((ParameterizedType) getClass().getGenericSuperclass()).getActualTypeArguments()[0];
 	}
 
+	/**
+	 * Reload the model from Redis, after any of its writes still queued. Blocks until done.
+	 */
 	public void fetchInstances() {
-		int previousCount = this.instances.size();
+		try {
+			WriteBehindQueue.get().submit(name, this::load).join();
+		} catch (CompletionException e) {
+			Throwable cause = e.getCause() != null ? e.getCause() : e;
+			System.err.println("Failed to load instances of " + name + " from Redis: " + cause.getMessage());
+		}
+	}
+
+	/**
+	 * Load the model if it has never been loaded, has drifted, or was loaded before this replica
+	 * gained or lost the GameServer.
+	 */
+	public void ensureLoaded() {
+		boolean owned = isWriter();
+		if (loaded && !drifted && loadedAsOwner == owned) return;
+
+		if (loaded) {
+			System.out.println("Reloading " + name + " from Redis: " + (drifted ? "model drifted" : "ownership changed"));
+		}
+		fetchInstances();
+	}
+
+	/**
+	 * Compare the model against the size of the deployment's instance index in Redis, at most once
+	 * per interval and only while none of its writes are in flight.
+	 */
+	public void checkDrift() {
+		long now = System.currentTimeMillis();
+		if (!loaded || now - lastDriftCheck < DRIFT_CHECK_INTERVAL_MS || pendingWrites.get() > 0) return;
+		lastDriftCheck = now;
+
+		long indexed = RedisManager.get().countInstances(name);
+		int modelled = snapshot.size();
+		if (indexed != modelled) markDrifted(indexed + " instance(s) indexed in Redis, " + modelled + " in memory");
+	}
+
+	public void markDrifted(String reason) {
+		if (!drifted) System.err.println("Instance model of " + name + " drifted from Redis: " + reason);
+		drifted = true;
+	}
+
+	@SuppressWarnings("unchecked")
+	private void load() {
+		boolean owned = isWriter();
+		synchronized (this) {
+			replay = new ArrayList<>();
+			drifted = false;
+		}
+
+		Model<T> fetched = new Model<>();
+		try {
+			List<Instance> instances = RedisManager.get().getInstances(name);
+			List<String> minecraftUids = new ArrayList<>();
+			for (Instance instance : instances) {
+				if (instance instanceof MinecraftInstance) minecraftUids.add(instance.getUid());
+			}
+			Map<String, Map<UUID, String>> rosters = RedisManager.get().getRosters(name, minecraftUids);
+
+			for (Instance instance : instances) {
+				fetched.load((T) instance, rosters.get(instance.getUid()));
+			}
+		} catch (RuntimeException e) {
+			synchronized (this) {
+				replay = null;
+				drifted = true;
+			}
+			throw e;
+		}
 
-		List<Instance> fetched = RedisManager.get().scanAndDeserializeInstances("instance:*:" + name);
-		this.instances = new ArrayList<>((Collection<? extends T>) fetched);
+		synchronized (this) {
+			int previousCount = model.instances.size();
+			for (Predicate<Model<T>> change : replay) {
+				change.test(fetched);
+			}
+			replay = null;
+			model = fetched;
+			loaded = true;
+			loadedAsOwner = owned;
+			publish();
+
+			if (previousCount > 0 && fetched.instances.isEmpty()) {
+				System.err.println("WARNING: " + name + " went from " + previousCount + " instances to 0 after reloading from Redis!");
+			}
+		}
+	}
+
+	/**
+	 * Add a copy of an instance to the model, or update the state of the one with its UID. A
+	 * live state never replaces a terminating one.
+	 *
+	 * @return the instance as held by the model
+	 */
+	public T putInstance(Instance instance) {
+		String uid = instance.getUid();
+		T held;
+		synchronized (this) {
+			boolean applied = apply(model -> model.put(instance));
+			held = model.instances.get(uid);
+			// Already terminating - Redis would turn the write away as well
+			if (!applied) return held;
+		}
+
+		persist(() -> {
+			T current = held(uid);
+			if (current == null) return;
+			if (!RedisManager.get().updateInstance(current)) markDrifted(current.getName() + " is already terminating in Redis");
+			RedisManager.get().publish(RedisChannel.INSTANCE_MODIFIED.getRef(), InstanceCodec.toJson(current));
+		});
+		return held;
+	}
+
+	public void removeInstance(String uid) {
+		synchronized (this) {
+			if (!apply(model -> model.remove(uid))) return;
+		}
+
+		persist(() -> {
+			RedisManager.get().removeInstance(uid, name);
+			RedisManager.get().publish(RedisChannel.INSTANCE_MODIFIED.getRef(), "");
+		});
+	}
+
+	/**
+	 * Change an instance's state in the model only - for callers that write it to Redis themselves.
+	 * The instance passed in is left as it was.
+	 *
+	 * @return the instance with its new state, or null if it is already terminating and the state
+	 * is a live one
+	 */
+	public Instance applyState(Instance instance, InstanceState state) {
+		synchronized (this) {
+			if (model.instances.containsKey(instance.getUid())) {
+				if (!apply(model -> model.setState(instance.getUid(), state))) return null;
+				return model.instances.get(instance.getUid());
+			}
+		}
+
+		// Not modelled (removed meanwhile) - still answer with a copy in the new state
+		if (!InstanceManager.canTransition(instance.getState(), state)) return null;
+		return copy(instance, state, playerCount(instance));
+	}
+
+	/**
+	 * Change an instance's state in the model and write it behind.
+	 *
+	 * @return the instance with its new state, or null if it is already terminating and the state
+	 * is a live one
+	 */
+	public Instance updateState(Instance instance, InstanceState state) {
+		Instance updated = applyState(instance, state);
+		if (updated == null) return null;
+
+		String uid = instance.getUid();
+		persist(() -> {
+			// The state the model has by the time this runs, never an older one that a synchronous
+			// write has since replaced
+			Instance current = held(uid);
+			if (current == null) current = updated;
+			if (!RedisManager.get().updateInstance(current)) markDrifted(current.getName() + " is already terminating in Redis");
+		});
+		return updated;
+	}
+
+	/**
+	 * Add a player to an instance's roster and write it behind.
+	 *
+	 * @return false if the instance isn't a Minecraft instance in the model or already had the player
+	 */
+	public boolean addPlayer(String uid, UUID player, String playerName) {
+		T held;
+		int expectedCount;
+		synchronized (this) {
+			if (!apply(model -> model.addPlayer(uid, player, playerName))) return false;
+			held = model.instances.get(uid);
+			expectedCount = CountedMinecraftInstance.playerCount((MinecraftInstance) held);
+		}
+
+		persist(() -> {
+			int count = RedisManager.get().addPlayer(held, player, playerName);
+			if (count != expectedCount) markDrifted(held.getName() + " has " + count + " player(s) in Redis, expected " + expectedCount);
+		});
+		return true;
+	}
+
+	/**
+	 * Remove a player from every roster of this GameServer that lists them, and write it behind.
+	 *
+	 * @return whether any roster listed the player
+	 */
+	public boolean removePlayer(UUID player) {
+		Map<T, Integer> removed = new HashMap<>();
+		synchronized (this) {
+			for (String uid : model.rostersWith(player)) {
+				if (!apply(model -> model.removePlayer(uid, player))) continue;
+				T held = model.instances.get(uid);
+				removed.put(held, CountedMinecraftInstance.playerCount((MinecraftInstance) held));
+			}
+		}
 
-		if (previousCount > 0 && this.instances.isEmpty()) {
-			System.err.println("WARNING: " + name + " went from " + previousCount + " instances to 0 after fetchInstances()!");
+		for (Map.Entry<T, Integer> entry : removed.entrySet()) {
+			T held = entry.getKey();
+			int expectedCount = entry.getValue();
+			persist(() -> {
+				int count = RedisManager.get().removePlayer(held, player);
+				if (count != expectedCount) markDrifted(held.getName() + " has " + count + " player(s) in Redis, expected " + expectedCount);
+			});
 		}
+		return !removed.isEmpty();
+	}
+
+	// Caller holds the lock
+	private boolean apply(Predicate<Model<T>> change) {
+		boolean changed = change.test(model);
+		if (replay != null) replay.add(change);
+		if (changed) publish();
+		return changed;
+	}
+
+	// Caller holds the lock
+	private void publish() {
+		snapshot = new InstanceSnapshot<>(++version, new ArrayList<>(model.instances.values()));
+		BMCManager.instanceManager.indexInstances(name, snapshot.getInstances());
+	}
+
+	private synchronized T held(String uid) {
+		return model.instances.get(uid);
+	}
+
+	/**
+	 * Whether this replica writes the model to Redis. That is every replica except those whose
+	 * ring places the GameServer on another live member - a lease that briefly failed to renew
+	 * doesn't stop the owner writing, or its changes would be lost from Redis and then from the
+	 * model at the next reload.
+	 */
+	private boolean isWriter() {
+		return !BMCManager.shardCoordinator.ownedByOther(name);
+	}
+
+	private void persist(Runnable write) {
+		if (!isWriter()) return;
+
+		pendingWrites.incrementAndGet();
+		WriteBehindQueue.get().submit(name, write).whenComplete((result, error) -> {
+			pendingWrites.decrementAndGet();
+			if (error != null) {
+				Throwable cause = error.getCause() != null ? error.getCause() : error;
+				markDrifted("write failed: " + cause.getMessage());
+			}
+		});
+	}
+
+	/**
+	 * A new object for the model, so nothing already published is ever modified. Minecraft
+	 * instances are modelled with a player count, kept in step with their roster.
+	 */
+	private static Instance copy(Instance instance, InstanceState state, int playerCount) {
+		Instance copy = instance instanceof MinecraftInstance
+			? new CountedMinecraftInstance(instance.getUid(), instance.getName(), instance.getPodName(), instance.getIp(), instance.getDeployment(), playerCount)
+			: new Instance(instance.getUid(), instance.getName(), instance.getPodName(), instance.getIp(), instance.getDeployment());
+		copy.setState(state);
+		return copy;
+	}
+
+	private static int playerCount(Instance instance) {
+		return instance instanceof MinecraftInstance minecraftInstance ? CountedMinecraftInstance.playerCount(minecraftInstance) : 0;
 	}
 
 	public String getName() {
 		return name;
 	}
 
+	/**
+	 * The instances and their counts as of the last change to the model. Read it once and work
+	 * from that, so every figure comes from the same moment.
+	 */
+	public InstanceSnapshot<T> getSnapshot() {
+		return snapshot;
+	}
+
+	/**
+	 * @return an immutable list
+	 */
 	public List<T> getInstances() {
-		return new ArrayList<>(instances);
+		return snapshot.getInstances();
+	}
+
+	public boolean hasInstances() {
+		return !snapshot.isEmpty();
 	}
 
 	public GameServer getGameServer() {
@@ -77,14 +382,26 @@ public abstract class GameServerWrapper<T extends Instance> implements Scalable
 	public void setGameServer(GameServer gameServer) {
 		this.gameServer = gameServer;
 
-		// Refresh cached settings from updated CRD
+		// Only rebuild cached settings when the spec actually changed
+		Long generation = gameServer.getMetadata().getGeneration();
+		if (generation != null && generation.equals(observedGeneration)) return;
+
+		String previousSpecHash = observedSpecHash;
+		applySpec(gameServer);
+		if (observedSpecHash.equals(previousSpecHash)) return;
+
+		System.out.println("Updated settings for " + name + ": " + scalingSettings);
+	}
+
+	private void applySpec(GameServer gameServer) {
 		GameServerSpec.QueuingSpec queuing = gameServer.getSpec().getQueuing();
 		this.queueStrategy = queuing != null
 				? QueueStrategy.getStrategy(queuing.getQueueStrategy())
 				: QueueStrategy.FILL;
 		this.scalingSettings = new ScalingSettings(gameServer.getSpec().getScaling());
 
-		System.out.println("Updated settings for " + name + ": " + scalingSettings);
+		this.observedGeneration = gameServer.getMetadata().getGeneration();
+		this.observedSpecHash = SpecHash.of(gameServer);
 	}
 
 	public String getDeploymentType() {
@@ -139,4 +456,87 @@ public abstract class GameServerWrapper<T extends Instance> implements Scalable
 	public void setEnabled(boolean enabled) {
 		this.enabled = enabled;
 	}
+
+	/**
+	 * Instances by UID, and the roster of each Minecraft instance. Every change returns whether
+	 * it changed anything, and applying one twice changes nothing the second time.
+	 *
+	 * Instances are never modified once in the model - a change puts a changed copy in place of
+	 * the old one, which stays exactly as any snapshot holding it saw it.
+	 */
+	private static class Model<T extends Instance> {
+		final Map<String, T> instances = new LinkedHashMap<>();
+		// Player UUID -> name, for Minecraft instances only
+		final Map<String, Map<UUID, String>> rosters = new HashMap<>();
+
+		@SuppressWarnings("unchecked")
+		void load(T instance, Map<UUID, String> roster) {
+			// Hashes from before rosters had their own hash only have the players field
+			if (instance instanceof MinecraftInstance minecraftInstance && (roster == null || roster.isEmpty())) {
+				roster = minecraftInstance.getPlayers();
+			}
+			instances.put(instance.getUid(), (T) copy(instance, instance.getState(), playerCount(instance)));
+			if (instance instanceof MinecraftInstance) rosters.put(instance.getUid(), new HashMap<>(roster));
+		}
+
+		boolean put(Instance instance) {
+			if (!instances.containsKey(instance.getUid())) {
+				load(uncheckedCast(instance), null);
+				return true;
+			}
+			return setState(instance.getUid(), instance.getState());
+		}
+
+		boolean remove(String uid) {
+			rosters.remove(uid);
+			return instances.remove(uid) != null;
+		}
+
+		boolean setState(String uid, InstanceState state) {
+			T instance = instances.get(uid);
+			if (instance == null || !InstanceManager.canTransition(instance.getState(), state)) return false;
+			if (instance.getState() != state) replace(instance, state, playerCount(instance));
+			return true;
+		}
+
+		// Mirrors the roster scripts - the count only moves when the roster gains or loses a player
+		boolean addPlayer(String uid, UUID player, String name) {
+			Map<UUID, String> roster = rosters.get(uid);
+			if (roster == null) return false;
+
+			String previous = roster.put(player, name);
+			if (previous == null) {
+				T instance = instances.get(uid);
+				replace(instance, instance.getState(), playerCount(instance) + 1);
+			}
+			return !name.equals(previous);
+		}
+
+		boolean removePlayer(String uid, UUID player) {
+			Map<UUID, String> roster = rosters.get(uid);
+			if (roster == null || !roster.containsKey(player)) return false;
+
+			roster.remove(player);
+			T instance = instances.get(uid);
+			replace(instance, instance.getState(), playerCount(instance) - 1);
+			return true;
+		}
+
+		List<String> rostersWith(UUID player) {
+			List<String> uids = new ArrayList<>();
+			for (Map.Entry<String, Map<UUID, String>> roster : rosters.entrySet()) {
+				if (roster.getValue().containsKey(player)) uids.add(roster.getKey());
+			}
+			return uids;
+		}
+
+		private void replace(T instance, InstanceState state, int playerCount) {
+			instances.put(instance.getUid(), uncheckedCast(copy(instance, state, playerCount)));
+		}
+
+		@SuppressWarnings("unchecked")
+		private T uncheckedCast(Instance instance) {
+			return (T) instance;
+		}
+	}
 }
@@ -0,0 +1,101 @@
+package dev.kyriji.bmcmanager.objects;
+
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+import dev.kyriji.bigminecraftapi.objects.Instance;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+
+import java.util.List;
+
+/**
+ * A GameServer's instances as its model stood after one change, with the counts scaling and
+ * queuing need worked out once when it is built.
+ *
+ * Neither the list nor the instances in it change after publication - the model replaces an
+ * instance rather than modifying it - and every count is taken from the same list, so a reader
+ * holding a snapshot sees one consistent fleet. Counts reflect each instance's state and
+ * players when the snapshot was built; the model publishes a new snapshot with every change.
+ */
+public class InstanceSnapshot<T extends Instance> {
+	private static final InstanceState[] STATES = InstanceState.values();
+	private static final InstanceSnapshot<?> EMPTY = new InstanceSnapshot<>(0, List.of());
+
+	private final long version;
+	private final List<T> instances;
+	// Indexed by InstanceState ordinal; instances without a state aren't counted
+	private final int[] stateCounts = new int[STATES.length];
+	private final int playerCount;
+
+	public InstanceSnapshot(long version, List<? extends T> instances) {
+		this.version = version;
+		this.instances = List.copyOf(instances);
+
+		int players = 0;
+		for (T instance : this.instances) {
+			if (instance.getState() != null) stateCounts[instance.getState().ordinal()]++;
+			if (instance instanceof MinecraftInstance minecraftInstance) {
+				players += CountedMinecraftInstance.playerCount(minecraftInstance);
+			}
+		}
+		this.playerCount = players;
+	}
+
+	@SuppressWarnings("unchecked")
+	public static <T extends Instance> InstanceSnapshot<T> empty() {
+		return (InstanceSnapshot<T>) EMPTY;
+	}
+
+	/**
+	 * Increases with every change to the same GameServer's model.
+	 */
+	public long getVersion() {
+		return version;
+	}
+
+	/**
+	 * @return an immutable list
+	 */
+	public List<T> getInstances() {
+		return instances;
+	}
+
+	public int size() {
+		return instances.size();
+	}
+
+	public boolean isEmpty() {
+		return instances.isEmpty();
+	}
+
+	public int count(InstanceState state) {
+		return stateCounts[state.ordinal()];
+	}
+
+	/**
+	 * RUNNING and STARTING - capacity that is up or about to be.
+	 */
+	public int getActiveCount() {
+		return count(InstanceState.RUNNING) + count(InstanceState.STARTING);
+	}
+
+	public int getRunningCount() {
+		return count(InstanceState.RUNNING);
+	}
+
+	/**
+	 * Everything but DRAINING, STOPPING and STOPPED. BLOCKED instances are still real capacity.
+	 */
+	public int getNonTerminatingCount() {
+		return size() - count(InstanceState.DRAINING) - count(InstanceState.STOPPING) - count(InstanceState.STOPPED);
+	}
+
+	public boolean hasDraining() {
+		return count(InstanceState.DRAINING) > 0;
+	}
+
+	/**
+	 * Players across all Minecraft instances.
+	 */
+	public int getPlayerCount() {
+		return playerCount;
+	}
+}
@@ -3,18 +3,36 @@ package dev.kyriji.bmcmanager.objects;
 public class ReconcileResult {
 	private final boolean shouldRequeue;
 	private final long requeueAfterMs;
+	private final boolean error;
+	private final boolean gone;
 
-	private ReconcileResult(boolean shouldRequeue, long requeueAfterMs) {
+	private ReconcileResult(boolean shouldRequeue, long requeueAfterMs, boolean error, boolean gone) {
 		this.shouldRequeue = shouldRequeue;
 		this.requeueAfterMs = requeueAfterMs;
+		this.error = error;
+		this.gone = gone;
 	}
 
 	public static ReconcileResult noRequeue() {
-		return new ReconcileResult(false, 0);
+		return new ReconcileResult(false, 0, false, false);
+	}
+
+	/**
+	 * The GameServer no longer exists - nothing to requeue, and nothing left to report on.
+	 */
+	public static ReconcileResult gone() {
+		return new ReconcileResult(false, 0, false, true);
 	}
 
 	public static ReconcileResult requeueAfter(long milliseconds) {
-		return new ReconcileResult(true, milliseconds);
+		return new ReconcileResult(true, milliseconds, false, false);
+	}
+
+	/**
+	 * Reconcile failed - requeue with per-GameServer exponential backoff instead of a fixed delay.
+	 */
+	public static ReconcileResult error() {
+		return new ReconcileResult(true, 0, true, false);
 	}
 
 	public static ReconcileResult requeue() {
@@ -29,11 +47,21 @@ public class ReconcileResult {
 		return requeueAfterMs;
 	}
 
+	public boolean isError() {
+		return error;
+	}
+
+	public boolean isGone() {
+		return gone;
+	}
+
 	@Override
 	public String toString() {
 		return "ReconcileResult{" +
 			   "shouldRequeue=" + shouldRequeue +
 			   ", requeueAfterMs=" + requeueAfterMs +
+			   ", error=" + error +
+			   ", gone=" + gone +
 			   '}';
 	}
 }
@@ -0,0 +1,55 @@
+package dev.kyriji.bmcmanager.objects;
+
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+
+/**
+ * An instance hash found in Redis at startup, left there by a previous manager run.
+ */
+public class RecoveredInstance {
+	private final String uid;
+	private final String deployment;
+	private final InstanceState state;
+	private final String shutdownToken;
+	private final String shutdownReason;
+	private final long blockUntil;
+
+	public RecoveredInstance(String uid, String deployment, InstanceState state, String shutdownToken, String shutdownReason, long blockUntil) {
+		this.uid = uid;
+		this.deployment = deployment;
+		this.state = state;
+		this.shutdownToken = shutdownToken;
+		this.shutdownReason = shutdownReason;
+		this.blockUntil = blockUntil;
+	}
+
+	public String getUid() {
+		return uid;
+	}
+
+	public String getDeployment() {
+		return deployment;
+	}
+
+	public InstanceState getState() {
+		return state;
+	}
+
+	public String getShutdownToken() {
+		return shutdownToken;
+	}
+
+	public String getShutdownReason() {
+		return shutdownReason;
+	}
+
+	public long getBlockUntil() {
+		return blockUntil;
+	}
+
+	/**
+	 * A shutdown had been proposed and not yet finished when the previous run stopped.
+	 */
+	public boolean hasPendingShutdown() {
+		return shutdownToken != null && blockUntil > 0 && state != InstanceState.STOPPING && state != InstanceState.STOPPED;
+	}
+}
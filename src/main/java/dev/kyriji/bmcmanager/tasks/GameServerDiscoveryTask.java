@@ -21,7 +21,7 @@ public class GameServerDiscoveryTask {
 	public void discoverGameServers() {
 		GameServerManager gameServerManager = BMCManager.gameServerManager;
 
-		List<GameServerWrapper<?>> existingGameServers = gameServerManager.getGameServers();
+		List<GameServerWrapper<?>> existingGameServers = new ArrayList<>(gameServerManager.getGameServers());
 		List<GameServerWrapper<?>> newGameServers = new ArrayList<>();
 
 		// List all GameServer CRDs in the configured namespace
@@ -52,7 +52,7 @@ public class GameServerDiscoveryTask {
 			gameServerManager.registerGameServer(newGameServer);
 		}
 
-		// Fetch instances for all GameServers
+		// Load every GameServer's instance model from Redis - after this they are kept in memory
 		for (GameServerWrapper<?> gameServer : gameServerManager.getGameServers()) {
 			gameServer.fetchInstances();
 		}
@@ -47,6 +47,8 @@ public class InstanceAgeCheckerTask {
 		long now = System.currentTimeMillis();
 
 		for (GameServerWrapper<?> wrapper : BMCManager.gameServerManager.getGameServers()) {
+			if (!BMCManager.shardCoordinator.owns(wrapper.getName())) continue;
+
 			GameServerSpec.ScalingSpec scaling = wrapper.getGameServer().getSpec().getScaling();
 			if (scaling == null) continue;
 			String maxInstanceAge = scaling.getMaxInstanceAge();
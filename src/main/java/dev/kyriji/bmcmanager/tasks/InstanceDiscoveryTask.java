@@ -10,59 +10,118 @@ import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.enums.InstanceState;
 import io.fabric8.kubernetes.api.model.Pod;
 import io.fabric8.kubernetes.api.model.ContainerStatus;
-import io.fabric8.kubernetes.api.model.ContainerStateTerminated;
 import io.fabric8.kubernetes.client.KubernetesClient;
-import io.fabric8.kubernetes.client.KubernetesClientBuilder;
+import io.fabric8.kubernetes.client.informers.ResourceEventHandler;
+import io.fabric8.kubernetes.client.informers.SharedIndexInformer;
 
 import java.time.Instant;
 import java.util.*;
-
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Registers and unregisters instances as their pods come and go.
+ *
+ * Driven by pod informer events rather than polling: add/update events register new pods
+ * (or handle failed ones), delete events unregister them. The managed-pod informer is shared
+ * with the reconciler; standalone proxy pods (app=proxy without the managed-by label) get a
+ * small informer of their own.
+ */
 public class InstanceDiscoveryTask {
+	private static final int HEARTBEAT_INTERVAL_MS = 5000;
+
 	private final KubernetesClient client;
 	private final InstanceManager instanceManager;
-	private final HashMap<String, Pod> podMap = new HashMap<>();
-	private final HashMap<String, Long> podCreationTimes = new HashMap<>();
+	private final Map<String, Pod> podMap = new ConcurrentHashMap<>();
+	private final Map<String, Long> podCreationTimes = new ConcurrentHashMap<>();
+	private final SharedIndexInformer<Pod> proxyInformer;
 
-	public InstanceDiscoveryTask(InstanceManager instanceManager) {
+	public InstanceDiscoveryTask(InstanceManager instanceManager, SharedIndexInformer<Pod> managedPodInformer) {
 		this.instanceManager = instanceManager;
-		this.client = new KubernetesClientBuilder().build();
+		this.client = BMCManager.kubernetesClient;
+
+		ResourceEventHandler<Pod> handler = new ResourceEventHandler<>() {
+			@Override
+			public void onAdd(Pod pod) {
+				handlePod(pod);
+			}
+
+			@Override
+			public void onUpdate(Pod oldPod, Pod newPod) {
+				handlePod(newPod);
+			}
+
+			@Override
+			public void onDelete(Pod pod, boolean deletedFinalStateUnknown) {
+				handleDeletedPod(pod);
+			}
+		};
+
+		// Handlers added to a running informer receive an add event for every cached pod,
+		// which doubles as the initial discovery pass
+		managedPodInformer.addEventHandler(handler);
+
+		// Also include proxy pods (for backwards compatibility or standalone proxies)
+		this.proxyInformer = client.pods()
+				.inNamespace(BMCManager.getNamespace())
+				.withLabel("app", "proxy")
+				.inform(handler, 10 * 60 * 1000L);
+
+		pruneOrphans(managedPodInformer);
 
+		// Lets proxies and servers know the manager is alive
 		new Thread(() -> {
 			while (true) {
 				try {
-					discoverInstances();
-					Thread.sleep(5000);
+					RedisManager.get().updateTimestamp();
+					Thread.sleep(HEARTBEAT_INTERVAL_MS);
+				} catch (InterruptedException e) {
+					break;
 				} catch (Exception e) {
 					e.printStackTrace();
 				}
 			}
-		}).start();
+		}, "manager-heartbeat").start();
+	}
+
+	/**
+	 * Remove Redis state left behind for pods that disappeared while no manager was running.
+	 * Everything else recovered from Redis is kept and reconciled as its pod is rediscovered.
+	 */
+	private void pruneOrphans(SharedIndexInformer<Pod> managedPodInformer) {
+		// An incomplete pod list would make live instances look orphaned
+		if (!managedPodInformer.hasSynced() || !proxyInformer.hasSynced()) {
+			System.err.println("Pod informers have not synced - skipping orphan pruning");
+			return;
+		}
+
+		Set<String> liveUids = new HashSet<>();
+		for (Pod pod : managedPodInformer.getStore().list()) {
+			liveUids.add(pod.getMetadata().getUid());
+		}
+		for (Pod pod : proxyInformer.getStore().list()) {
+			liveUids.add(pod.getMetadata().getUid());
+		}
+		instanceManager.pruneOrphans(liveUids);
 	}
 
 	/**
 	 * Returns the Kubernetes creation timestamp (epoch millis) for a pod by UID,
-	 * or null if the pod has not been seen by the discovery loop yet.
+	 * or null if the pod has not been discovered yet.
 	 */
 	public Long getPodCreationTime(String uid) {
 		return podCreationTimes.get(uid);
 	}
 
-	private void discoverInstances() {
-		// Find all pods managed by bmc-manager (created by PodBuilder with this label)
-		List<Pod> podList = client.pods().withLabel("kyriji.dev/managed-by", "bmc-manager").list().getItems();
-		// Also include proxy pods (for backwards compatibility or standalone proxies)
-		List<Pod> proxyList = client.pods().withLabel("app", "proxy").list().getItems();
-
-		podList.addAll(proxyList);
-
-		podList.forEach(pod -> {
-			if (pod.getStatus().getPhase().equals("Terminating")) return;
+	private void handlePod(Pod pod) {
+		try {
+			if ("Terminating".equals(pod.getStatus().getPhase())) return;
 			// Skip pods that are being deleted (deletion timestamp is set before phase changes to Terminating)
 			if (pod.getMetadata().getDeletionTimestamp() != null) return;
 
 			// Check for failed pods and handle them (do this BEFORE IP check, since Unknown pods may have no IP)
 			if (isPodFailed(pod)) {
-				handleFailedPod(pod);
+				// Only the replica that owns the GameServer acts on its pods
+				if (BMCManager.shardCoordinator.owns(pod.getMetadata().getLabels().get("app"))) handleFailedPod(pod);
 				return; // Don't register failed pods
 			}
 
@@ -73,30 +132,42 @@ public class InstanceDiscoveryTask {
 				Instance instance = InstanceFactory.createFromPod(pod);
 				if (instance == null) return;
 
-				instanceManager.registerInstance(instance);
+				if (BMCManager.shardCoordinator.owns(instance.getDeployment())) {
+					instanceManager.registerInstance(instance);
+				} else {
+					// Registered in Redis by the owning replica - track it in the local model meanwhile
+					GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(instance.getDeployment());
+					if (wrapper != null) wrapper.putInstance(instance);
+				}
 			}
-		});
+		} catch (Exception e) {
+			System.err.println("Error handling pod event for " + pod.getMetadata().getName() + ": " + e.getMessage());
+			e.printStackTrace();
+		}
+	}
+
+	private void handleDeletedPod(Pod pod) {
+		String uid = pod.getMetadata().getUid();
+		// Both informers see proxies carrying the managed-by label - only unregister once
+		if (podMap.remove(uid) == null) return;
 
-		Map<String, Pod> uidList = getDeletedPodList(client);
-		uidList.forEach((key, value) -> {
-			String deploymentName = value.getMetadata().getLabels().get("app");
-			String uid = value.getMetadata().getUid();
-			String podName = value.getMetadata().getName();
+		String deploymentName = pod.getMetadata().getLabels().get("app");
+		String podName = pod.getMetadata().getName();
 
+		if (BMCManager.shardCoordinator.owns(deploymentName)) {
 			System.out.println("Pod no longer exists in K8s, unregistering: " + podName + " (uid=" + uid + ", deployment=" + deploymentName + ")");
 			instanceManager.unregisterInstance(deploymentName, uid);
-			podCreationTimes.remove(uid);
-		});
-
-		BMCManager.gameServerManager.getGameServers().forEach(GameServerWrapper::fetchInstances);
-
-		RedisManager.get().updateTimestamp();
+		} else {
+			GameServerWrapper<?> wrapper = BMCManager.gameServerManager.getGameServer(deploymentName);
+			if (wrapper != null) wrapper.removeInstance(uid);
+		}
+		podCreationTimes.remove(uid);
 	}
 
 	private boolean diff(Pod pod) {
 		String uid = pod.getMetadata().getUid();
-		if (!podMap.containsKey(uid)) {
-			podMap.put(uid, pod);
+		Pod oldPod = podMap.put(uid, pod);
+		if (oldPod == null) {
 			String creationTimestamp = pod.getMetadata().getCreationTimestamp();
 			if (creationTimestamp != null) {
 				podCreationTimes.put(uid, Instant.parse(creationTimestamp).toEpochMilli());
@@ -104,20 +175,7 @@ public class InstanceDiscoveryTask {
 			return true;
 		}
 
-		Pod oldPod = podMap.get(uid);
-		if (!Objects.equals(oldPod.getStatus().getPhase(), pod.getStatus().getPhase())) {
-			podMap.put(uid, pod);
-			return true;
-		}
-
-		return false;
-	}
-
-	private Map<String, Pod> getDeletedPodList(KubernetesClient client) {
-		Map<String, Pod> removedMap = new HashMap<>(podMap);
-		client.pods().list().getItems().forEach(pod -> removedMap.remove(pod.getMetadata().getUid()));
-		for (String uid : removedMap.keySet()) podMap.remove(uid);
-		return removedMap;
+		return !Objects.equals(oldPod.getStatus().getPhase(), pod.getStatus().getPhase());
 	}
 
 	private boolean isPodFailed(Pod pod) {
@@ -186,15 +244,13 @@ public class InstanceDiscoveryTask {
 			" (reason=" + reason + ", uid=" + uid + ", deployment=" + deployment + ")");
 
 		// Try to mark instance as STOPPING in Redis
-		Instance instance = instanceManager.getInstances().stream()
-			.filter(i -> i.getUid().equals(uid))
-			.findFirst()
-			.orElse(null);
+		Instance instance = instanceManager.getByUid(uid);
 
 		if (instance != null) {
-			instance.setState(InstanceState.STOPPING);
-			PodLabelManager.syncLbLabel(instance);
-			RedisManager.get().updateInstance(instance);
+			// STOPPING is never refused
+			Instance stopping = instanceManager.applyState(instance, InstanceState.STOPPING);
+			PodLabelManager.syncLbLabel(stopping);
+			RedisManager.get().updateInstance(stopping);
 			System.out.println("Marked failed pod as STOPPING in Redis: " + podName);
 		}
 
@@ -1,109 +1,113 @@
 package dev.kyriji.bmcmanager.tasks;
 
-import com.google.gson.Gson;
 import dev.kyriji.bmcmanager.BMCManager;
 import dev.kyriji.bmcmanager.controllers.GameServerManager;
 import dev.kyriji.bmcmanager.controllers.PodLabelManager;
 import dev.kyriji.bmcmanager.controllers.QueueManager;
 import dev.kyriji.bmcmanager.controllers.RedisManager;
+import dev.kyriji.bmcmanager.controllers.SubscriptionManager;
 import dev.kyriji.bmcmanager.objects.GameServerWrapper;
 import dev.kyriji.bmcmanager.objects.Game;
 import dev.kyriji.bigminecraftapi.enums.InstanceState;
 import dev.kyriji.bigminecraftapi.enums.RedisChannel;
 import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
-import redis.clients.jedis.JedisPubSub;
 
 import java.util.List;
 import java.util.UUID;
 
 public class InstanceListenerTask {
-	Gson gson = new Gson();
+	private static final int LOOKUP_WORKERS = 4;
 
 	public InstanceListenerTask() {
 		GameServerManager gameServerManager = BMCManager.gameServerManager;
 
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
+		SubscriptionManager.get().register(RedisChannel.INSTANCE_STATE_CHANGE.getRef(), message -> {
+			String[] parts = message.split(":");
 
-				String instanceIP = parts[0];
-				String stateString = parts[1];
+			String instanceIP = parts[0];
+			String stateString = parts[1];
 
-				Instance instance = BMCManager.instanceManager.getFromIP(instanceIP);
-				if(instance == null) return;
-				GameServerWrapper<? extends Instance> gameServer = gameServerManager.getGameServer(instance.getDeployment());
-				if(gameServer == null) return;
+			Instance instance = BMCManager.instanceManager.getFromIP(instanceIP);
+			if(instance == null) return;
+			GameServerWrapper<? extends Instance> gameServer = gameServerManager.getGameServer(instance.getDeployment());
+			if(gameServer == null) return;
 
-				InstanceState state = InstanceState.valueOf(stateString);
-				instance.setState(state);
-				PodLabelManager.syncLbLabel(instance);
+			InstanceState state = InstanceState.valueOf(stateString);
 
-				// Delete pod when instance is stopping or stopped
-				if(state == InstanceState.STOPPING || state == InstanceState.STOPPED) {
-					System.out.println("Received " + state + " state for instance " + instance.getName() + " (" + instance.getPodName() + "), triggering pod deletion");
-					turnOffPod(instance);
-				}
+			// A stale live state for an instance that is already terminating - nothing changed
+			Instance updated = gameServer.updateState(instance, state);
+			if(updated == null) return;
 
-				RedisManager.get().updateInstance(instance);
-				gameServer.fetchInstances();
+			// Replicas that don't own this GameServer only track the state in their model
+			if(!BMCManager.shardCoordinator.owns(gameServer.getName())) return;
+
+			PodLabelManager.syncLbLabel(updated);
+
+			// Delete pod when instance is stopping or stopped
+			if(state == InstanceState.STOPPING || state == InstanceState.STOPPED) {
+				System.out.println("Received " + state + " state for instance " + instance.getName() + " (" + instance.getPodName() + "), triggering pod deletion");
+				turnOffPod(instance);
 			}
-		}, RedisChannel.INSTANCE_STATE_CHANGE.getRef())).start();
 
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				List<Game> games = gameServerManager.getGames();
-				List<Game> initialGames = games.stream()
-						.filter(game -> game.isInitial() && !game.getInstances().isEmpty())
-						.toList();
+			// React to the new state now rather than on the next periodic resync
+			BMCManager.informerManager.triggerReconcile(gameServer.getName());
+		});
+
+		// Read-only lookups - independent requests can be answered in parallel
+		SubscriptionManager.get().register(RedisChannel.REQUEST_INITIAL_INSTANCE.getRef(), LOOKUP_WORKERS, message -> {
+			// Every replica receives the request - exactly one answers it
+			if(!BMCManager.shardCoordinator.owns(message)) return;
 
-				if (initialGames.isEmpty()) return;
+			List<Game> initialGames = gameServerManager.getInitialGames().stream()
+					.filter(GameServerWrapper::hasInstances)
+					.toList();
 
-				Game game = initialGames.get((int) (Math.random() * initialGames.size()));
-				MinecraftInstance instance = QueueManager.findInstance(game);
+			if (initialGames.isEmpty()) return;
 
-				if (instance != null) {
-					RedisManager.get().publish(RedisChannel.INITIAL_INSTANCE_RESPONSE.getRef(), message + ":" + instance.getName());
-				}
+			Game game = initialGames.get((int) (Math.random() * initialGames.size()));
+			MinecraftInstance instance = QueueManager.findInstance(game);
+
+			if (instance != null) {
+				RedisManager.get().publish(RedisChannel.INITIAL_INSTANCE_RESPONSE.getRef(), message + ":" + instance.getName());
 			}
-		}, RedisChannel.REQUEST_INITIAL_INSTANCE.getRef())).start();
-
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
-				UUID playerId = UUID.fromString(parts[0]);
-				String deploymentString = parts[1];
-
-				Game game = gameServerManager.getGame(deploymentString);
-				if(game == null) {
-					//Used to send back an error to the proxy
-					QueueManager.sendPlayerToInstance(playerId, null);
-					return;
-				}
-
-				QueueManager.queuePlayer(playerId, game);
+		});
+
+		SubscriptionManager.get().register(RedisChannel.QUEUE_PLAYER.getRef(), message -> {
+			String[] parts = message.split(":");
+			UUID playerId = UUID.fromString(parts[0]);
+			String deploymentString = parts[1];
+
+			// Queued by the replica that owns the target GameServer
+			if(!BMCManager.shardCoordinator.owns(deploymentString)) return;
+
+			Game game = gameServerManager.getGame(deploymentString);
+			if(game == null) {
+				//Used to send back an error to the proxy
+				QueueManager.sendPlayerToInstance(playerId, null);
+				return;
 			}
-		}, RedisChannel.QUEUE_PLAYER.getRef())).start();
-
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
-				UUID playerId = UUID.fromString(parts[0]);
-				String ip = parts[1];
-
-				Instance instance = BMCManager.instanceManager.getFromIP(ip);
-				if(!(instance instanceof MinecraftInstance)) {
-					QueueManager.sendPlayerToInstance(playerId, null);
-					return;
-				}
-
-				QueueManager.sendPlayerToInstance(playerId, (MinecraftInstance) instance);
+
+			QueueManager.queuePlayer(playerId, game);
+		});
+
+		// Read-only lookups - independent requests can be answered in parallel
+		SubscriptionManager.get().register(RedisChannel.TRANSFER_PLAYER.getRef(), LOOKUP_WORKERS, message -> {
+			String[] parts = message.split(":");
+			UUID playerId = UUID.fromString(parts[0]);
+			String ip = parts[1];
+
+			Instance instance = BMCManager.instanceManager.getFromIP(ip);
+			String owningKey = instance != null ? instance.getDeployment() : ip;
+			if(!BMCManager.shardCoordinator.owns(owningKey)) return;
+
+			if(!(instance instanceof MinecraftInstance)) {
+				QueueManager.sendPlayerToInstance(playerId, null);
+				return;
 			}
-		}, RedisChannel.TRANSFER_PLAYER.getRef())).start();
+
+			QueueManager.sendPlayerToInstance(playerId, (MinecraftInstance) instance);
+		});
 	}
 
 	private void turnOffPod(Instance instance) {
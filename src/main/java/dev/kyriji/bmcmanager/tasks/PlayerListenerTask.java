@@ -1,117 +1,94 @@
 package dev.kyriji.bmcmanager.tasks;
 
-import com.google.gson.Gson;
 import dev.kyriji.bigminecraftapi.enums.RedisChannel;
 import dev.kyriji.bigminecraftapi.objects.Instance;
 import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
 import dev.kyriji.bmcmanager.BMCManager;
 import dev.kyriji.bmcmanager.controllers.GameServerManager;
 import dev.kyriji.bmcmanager.controllers.QueueManager;
-import dev.kyriji.bmcmanager.controllers.RedisManager;
+import dev.kyriji.bmcmanager.controllers.SubscriptionManager;
 import dev.kyriji.bmcmanager.objects.GameServerWrapper;
-import redis.clients.jedis.JedisPubSub;
 
-import java.util.ArrayList;
-import java.util.List;
 import java.util.UUID;
 
+/**
+ * Keeps rosters in the GameServer models up to date. Every replica applies each event to its own
+ * model; the model writes the change to Redis on the replica that owns the GameServer.
+ */
 public class PlayerListenerTask {
-	Gson gson = new Gson();
-
 	public PlayerListenerTask() {
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
-
-				UUID playerId = UUID.fromString(parts[0]);
-				String username = parts[1];
-				String proxyIP = parts[2];
+		SubscriptionManager.get().register(RedisChannel.PROXY_CONNECT.getRef(), message -> {
+			String[] parts = message.split(":");
 
-				Instance proxyInstance = BMCManager.instanceManager.getFromIP(proxyIP);
-				if(proxyInstance == null) return;
+			UUID playerId = UUID.fromString(parts[0]);
+			String username = parts[1];
+			String proxyIP = parts[2];
 
-				if(!(proxyInstance instanceof MinecraftInstance minecraftInstance)) return;
+			Instance proxyInstance = BMCManager.instanceManager.getFromIP(proxyIP);
+			if(proxyInstance == null) return;
 
-				minecraftInstance.addPlayer(playerId, username);
-				RedisManager.get().updateInstance(minecraftInstance);
+			if(!(proxyInstance instanceof MinecraftInstance minecraftInstance)) return;
 
-				updateGameServer(minecraftInstance);
-			}
-		}, RedisChannel.PROXY_CONNECT.getRef())).start();
+			GameServerWrapper<?> gameServer = BMCManager.gameServerManager.getGameServer(minecraftInstance.getDeployment());
+			if(gameServer == null) return;
 
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
+			gameServer.addPlayer(minecraftInstance.getUid(), playerId, username);
+			updateGameServer(minecraftInstance);
+		});
 
-				UUID playerId = UUID.fromString(parts[0]);
-				String username = parts[1];
-				String proxyIP = parts[2];
+		SubscriptionManager.get().register(RedisChannel.PROXY_DISCONNECT.getRef(), message -> {
+			String[] parts = message.split(":");
 
-				Instance proxyInstance = BMCManager.instanceManager.getFromIP(proxyIP);
-				if(proxyInstance == null) return;
+			UUID playerId = UUID.fromString(parts[0]);
+			String username = parts[1];
+			String proxyIP = parts[2];
 
-				if(!(proxyInstance instanceof MinecraftInstance minecraftInstance)) return;
+			Instance proxyInstance = BMCManager.instanceManager.getFromIP(proxyIP);
+			if(proxyInstance == null) return;
 
-				minecraftInstance.removePlayer(playerId);
-				RedisManager.get().updateInstance(minecraftInstance);
+			if(!(proxyInstance instanceof MinecraftInstance minecraftInstance)) return;
 
-				removePlayerFromInstance(playerId, true);
-				updateGameServer(minecraftInstance);
+			removePlayerFromInstance(playerId, true);
+			updateGameServer(minecraftInstance);
 
-				// Release any pending queue reservations for this player
-				QueueManager.releaseAllReservations(playerId);
-			}
-		}, RedisChannel.PROXY_DISCONNECT.getRef())).start();
+			// Release any pending queue reservations for this player
+			QueueManager.releaseAllReservations(playerId);
+		});
 
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				String[] parts = message.split(":");
+		SubscriptionManager.get().register(RedisChannel.INSTANCE_SWITCH.getRef(), message -> {
+			String[] parts = message.split(":");
 
-				UUID playerId = UUID.fromString(parts[0]);
-				String name = parts[1];
-				String serverIP = parts[2];
+			UUID playerId = UUID.fromString(parts[0]);
+			String name = parts[1];
+			String serverIP = parts[2];
 
-				removePlayerFromInstance(playerId, false);
+			removePlayerFromInstance(playerId, false);
 
-				Instance instance = BMCManager.instanceManager.getFromIP(serverIP);
-				if(instance == null) return;
+			Instance instance = BMCManager.instanceManager.getFromIP(serverIP);
+			if(instance == null) return;
 
-				if(!(instance instanceof MinecraftInstance server)) return;
+			if(!(instance instanceof MinecraftInstance server)) return;
 
-				server.addPlayer(playerId, name);
-				RedisManager.get().updateInstance(server);
-				updateGameServer(server);
+			GameServerWrapper<?> gameServer = BMCManager.gameServerManager.getGameServer(server.getDeployment());
+			if(gameServer != null) gameServer.addPlayer(server.getUid(), playerId, name);
+			updateGameServer(server);
 
- 				QueueManager.releaseReservation(server.getUid(), playerId);
-			}
-		}, RedisChannel.INSTANCE_SWITCH.getRef())).start();
+			QueueManager.releaseReservation(server.getUid(), playerId);
+		});
 	}
 
 	public void removePlayerFromInstance(UUID player, boolean removeProxy) {
-		List<MinecraftInstance> instances = new ArrayList<>();
 		GameServerManager manager = BMCManager.gameServerManager;
 
-		manager.getGames().forEach(game -> instances.addAll(game.getInstances()));
+		// The models know which rosters list the player - only those are touched
+		manager.getGames().forEach(game -> game.removePlayer(player));
 		if(removeProxy && manager.getProxy() != null) {
-			instances.addAll(manager.getProxy().getInstances());
-		}
-
-		for(Instance instance : instances) {
-			if(!(instance instanceof MinecraftInstance minecraftInstance)) continue;
-
-			if(minecraftInstance.hasPlayer(player)) {
-				minecraftInstance.removePlayer(player);
-				RedisManager.get().updateInstance(minecraftInstance);
-			}
+			manager.getProxy().removePlayer(player);
 		}
 	}
 
 	public void updateGameServer(Instance instance) {
-		GameServerManager gameServerManager = BMCManager.gameServerManager;
-		GameServerWrapper<?> gameServer = gameServerManager.getGameServer(instance.getDeployment());
-		if(gameServer != null) gameServer.fetchInstances();
+		// Player count changed - let scaling react immediately
+		BMCManager.informerManager.triggerReconcile(instance.getDeployment());
 	}
 }
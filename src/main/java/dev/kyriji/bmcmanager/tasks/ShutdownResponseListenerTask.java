@@ -1,9 +1,8 @@
 package dev.kyriji.bmcmanager.tasks;
 
-import dev.kyriji.bmcmanager.controllers.RedisManager;
+import dev.kyriji.bmcmanager.controllers.SubscriptionManager;
 import dev.kyriji.bmcmanager.controllers.ShutdownNegotiationManager;
 import dev.kyriji.bmcmanager.objects.ShutdownResponse;
-import redis.clients.jedis.JedisPubSub;
 
 /**
  * Listens for shutdown responses from instances and forwards them to ShutdownNegotiationManager.
@@ -12,18 +11,15 @@ public class ShutdownResponseListenerTask {
 	private static final String SHUTDOWN_RESPONSE_CHANNEL = "shutdown:response";
 
 	public ShutdownResponseListenerTask() {
-		new Thread(() -> RedisManager.get().subscribe(new JedisPubSub() {
-			@Override
-			public void onMessage(String channel, String message) {
-				try {
-					ShutdownResponse response = ShutdownResponse.parse(message);
-					ShutdownNegotiationManager.get().handleResponse(response);
-				} catch (Exception e) {
-					System.err.println("Error processing shutdown response: " + e.getMessage());
-					e.printStackTrace();
-				}
+		SubscriptionManager.get().register(SHUTDOWN_RESPONSE_CHANNEL, message -> {
+			try {
+				ShutdownResponse response = ShutdownResponse.parse(message);
+				ShutdownNegotiationManager.get().handleResponse(response);
+			} catch (Exception e) {
+				System.err.println("Error processing shutdown response: " + e.getMessage());
+				e.printStackTrace();
 			}
-		}, SHUTDOWN_RESPONSE_CHANNEL)).start();
+		});
 
 		System.out.println("ShutdownResponseListenerTask started - listening on channel: " + SHUTDOWN_RESPONSE_CHANNEL);
 	}
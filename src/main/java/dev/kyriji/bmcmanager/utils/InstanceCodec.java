@@ -0,0 +1,228 @@
+package dev.kyriji.bmcmanager.utils;
+
+import dev.kyriji.bigminecraftapi.objects.Instance;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Hand-written JSON for instances and player maps, replacing reflective Gson on the hot paths.
+ *
+ * Output matches what Gson produced for the same objects (key order aside), so API clients
+ * reading INSTANCE_MODIFIED or a legacy players field see no difference. Encoding reuses a
+ * per-thread buffer; decoding walks the string once without building a token tree.
+ */
+public class InstanceCodec {
+	private static final ThreadLocal<StringBuilder> BUFFER = ThreadLocal.withInitial(() -> new StringBuilder(512));
+	// Don't keep a buffer grown by one huge roster alive on every thread
+	private static final int MAX_RETAINED_CAPACITY = 64 * 1024;
+
+	private InstanceCodec() {
+	}
+
+	/**
+	 * The instance as JSON: its fields and, for Minecraft instances, its players.
+	 */
+	public static String toJson(Instance instance) {
+		StringBuilder out = buffer();
+		out.append('{');
+		boolean first = field(out, true, "uid", instance.getUid());
+		first = field(out, first, "name", instance.getName());
+		first = field(out, first, "podName", instance.getPodName());
+		first = field(out, first, "ip", instance.getIp());
+		first = field(out, first, "deployment", instance.getDeployment());
+		first = field(out, first, "state", instance.getState() != null ? instance.getState().name() : null);
+
+		if (instance instanceof MinecraftInstance minecraftInstance) {
+			if (!first) out.append(',');
+			appendString(out, "players");
+			out.append(':');
+			appendPlayers(out, minecraftInstance.getPlayers());
+		}
+		out.append('}');
+		return out.toString();
+	}
+
+	/**
+	 * Parse a legacy players field ({"uuid":"name",...}).
+	 *
+	 * @throws IllegalArgumentException if the JSON is malformed
+	 */
+	public static Map<UUID, String> readPlayers(String json) {
+		Map<UUID, String> players = new HashMap<>();
+		if (json == null || json.isEmpty()) return players;
+
+		Reader reader = new Reader(json);
+		reader.expect('{');
+		if (reader.peek() == '}') {
+			reader.pos++;
+			reader.end();
+			return players;
+		}
+
+		StringBuilder scratch = buffer();
+		while (true) {
+			String uuid = reader.readString(scratch);
+			reader.expect(':');
+			String name = reader.peek() == 'n' ? reader.readNull() : reader.readString(scratch);
+			players.put(UUID.fromString(uuid), name);
+
+			char next = reader.next();
+			if (next == '}') break;
+			if (next != ',') throw reader.error("expected ',' or '}'");
+		}
+		reader.end();
+		return players;
+	}
+
+	private static StringBuilder buffer() {
+		StringBuilder out = BUFFER.get();
+		if (out.capacity() > MAX_RETAINED_CAPACITY) {
+			out = new StringBuilder(512);
+			BUFFER.set(out);
+		}
+		out.setLength(0);
+		return out;
+	}
+
+	// Gson leaves out null fields
+	private static boolean field(StringBuilder out, boolean first, String name, String value) {
+		if (value == null) return first;
+		if (!first) out.append(',');
+		appendString(out, name);
+		out.append(':');
+		appendString(out, value);
+		return false;
+	}
+
+	private static void appendPlayers(StringBuilder out, Map<UUID, String> players) {
+		out.append('{');
+		boolean first = true;
+		for (Map.Entry<UUID, String> player : players.entrySet()) {
+			if (player.getValue() == null) continue;
+			if (!first) out.append(',');
+			first = false;
+			appendString(out, player.getKey().toString());
+			out.append(':');
+			appendString(out, player.getValue());
+		}
+		out.append('}');
+	}
+
+	private static void appendString(StringBuilder out, String value) {
+		out.append('"');
+		for (int i = 0; i < value.length(); i++) {
+			char c = value.charAt(i);
+			switch (c) {
+				case '"' -> out.append("\\\"");
+				case '\\' -> out.append("\\\\");
+				case '\n' -> out.append("\\n");
+				case '\r' -> out.append("\\r");
+				case '\t' -> out.append("\\t");
+				case '\b' -> out.append("\\b");
+				case '\f' -> out.append("\\f");
+				// Gson's HTML-safe escapes, kept so output is byte-for-byte comparable
+				case '<', '>', '&', '=', '\'', '\u2028', '\u2029' -> appendUnicodeEscape(out, c);
+				default -> {
+					if (c < 0x20) appendUnicodeEscape(out, c);
+					else out.append(c);
+				}
+			}
+		}
+		out.append('"');
+	}
+
+	private static void appendUnicodeEscape(StringBuilder out, char c) {
+		out.append("\\u");
+		String hex = Integer.toHexString(c);
+		for (int i = hex.length(); i < 4; i++) out.append('0');
+		out.append(hex);
+	}
+
+	private static class Reader {
+		final String json;
+		int pos;
+
+		Reader(String json) {
+			this.json = json;
+		}
+
+		char peek() {
+			skipWhitespace();
+			if (pos >= json.length()) throw error("unexpected end");
+			return json.charAt(pos);
+		}
+
+		char next() {
+			char c = peek();
+			pos++;
+			return c;
+		}
+
+		void expect(char c) {
+			if (next() != c) throw error("expected '" + c + "'");
+		}
+
+		void end() {
+			skipWhitespace();
+			if (pos != json.length()) throw error("trailing characters");
+		}
+
+		String readNull() {
+			skipWhitespace();
+			if (!json.startsWith("null", pos)) throw error("expected null");
+			pos += 4;
+			return null;
+		}
+
+		String readString(StringBuilder scratch) {
+			expect('"');
+			int start = pos;
+			// Fast path - no escapes, substring straight out of the input
+			while (pos < json.length()) {
+				char c = json.charAt(pos);
+				if (c == '"') return json.substring(start, pos++);
+				if (c == '\\') break;
+				pos++;
+			}
+
+			scratch.setLength(0);
+			scratch.append(json, start, pos);
+			while (pos < json.length()) {
+				char c = json.charAt(pos++);
+				if (c == '"') return scratch.toString();
+				if (c != '\\') {
+					scratch.append(c);
+					continue;
+				}
+				if (pos >= json.length()) break;
+
+				char escaped = json.charAt(pos++);
+				switch (escaped) {
+					case 'n' -> scratch.append('\n');
+					case 'r' -> scratch.append('\r');
+					case 't' -> scratch.append('\t');
+					case 'b' -> scratch.append('\b');
+					case 'f' -> scratch.append('\f');
+					case 'u' -> {
+						if (pos + 4 > json.length()) throw error("truncated unicode escape");
+						scratch.append((char) Integer.parseInt(json, pos, pos + 4, 16));
+						pos += 4;
+					}
+					default -> scratch.append(escaped);
+				}
+			}
+			throw error("unterminated string");
+		}
+
+		void skipWhitespace() {
+			while (pos < json.length() && Character.isWhitespace(json.charAt(pos))) pos++;
+		}
+
+		IllegalArgumentException error(String message) {
+			return new IllegalArgumentException("Invalid players JSON at " + pos + ": " + message);
+		}
+	}
+}
@@ -0,0 +1,49 @@
+package dev.kyriji.bmcmanager.utils;
+
+import dev.kyriji.bmcmanager.crd.GameServer;
+import io.fabric8.kubernetes.client.utils.Serialization;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Objects;
+
+/**
+ * Detects genuine GameServer spec changes.
+ *
+ * metadata.generation is only bumped by the API server when the spec changes, so it is
+ * compared first. If either side has no generation, a hash of the serialized spec is used.
+ */
+public class SpecHash {
+
+	private SpecHash() {
+	}
+
+	/**
+	 * Hash of the GameServer's spec, stable across resyncs and status/metadata-only updates.
+	 */
+	public static String of(GameServer gameServer) {
+		String json = Serialization.asJson(gameServer.getSpec());
+		try {
+			MessageDigest digest = MessageDigest.getInstance("SHA-256");
+			return HexFormat.of().formatHex(digest.digest(json.getBytes(StandardCharsets.UTF_8)));
+		} catch (NoSuchAlgorithmException e) {
+			// Every JVM ships SHA-256
+			throw new IllegalStateException(e);
+		}
+	}
+
+	/**
+	 * @return true if the spec of newGameServer differs from oldGameServer
+	 */
+	public static boolean specChanged(GameServer oldGameServer, GameServer newGameServer) {
+		Long oldGeneration = oldGameServer.getMetadata().getGeneration();
+		Long newGeneration = newGameServer.getMetadata().getGeneration();
+		if (oldGeneration != null && newGeneration != null) {
+			return !oldGeneration.equals(newGeneration);
+		}
+
+		return !Objects.equals(of(oldGameServer), of(newGameServer));
+	}
+}
@@ -0,0 +1,177 @@
+package dev.kyriji.bmcmanager.controller;
+
+import io.fabric8.kubernetes.api.model.coordination.v1.Lease;
+import io.fabric8.kubernetes.api.model.coordination.v1.LeaseBuilder;
+import org.junit.jupiter.api.Test;
+
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Failover on the shard ring, driven by hand-built Leases and a fake clock - no cluster needed.
+ */
+class ShardCoordinatorTest {
+	private static final int KEYS = 2000;
+	private static final int LEASE_SECONDS = 15;
+
+	private final AtomicLong now = new AtomicLong(1_700_000_000_000L);
+
+	private ShardCoordinator coordinator(String identity) {
+		ShardCoordinator coordinator = new ShardCoordinator(null, "default", identity, true, now::get);
+		coordinator.recordRenewal();
+		return coordinator;
+	}
+
+	private Lease lease(String holder, long renewedMillis) {
+		return new LeaseBuilder()
+			.withNewMetadata()
+				.withName("bmc-manager-" + holder)
+				.addToLabels(ShardCoordinator.MEMBER_LABEL, "true")
+			.endMetadata()
+			.withNewSpec()
+				.withHolderIdentity(holder)
+				.withLeaseDurationSeconds(LEASE_SECONDS)
+				.withRenewTime(ZonedDateTime.ofInstant(Instant.ofEpochMilli(renewedMillis), ZoneOffset.UTC))
+			.endSpec()
+			.build();
+	}
+
+	private static List<String> keys() {
+		List<String> keys = new ArrayList<>();
+		for (int i = 0; i < KEYS; i++) {
+			keys.add("gameserver-" + i);
+		}
+		return keys;
+	}
+
+	private void settle() {
+		now.addAndGet(ShardCoordinator.SETTLE_MS);
+	}
+
+	@Test
+	void everyMemberGetsAShare() {
+		ShardCoordinator coordinator = coordinator("a");
+		coordinator.updateMembership(List.of(lease("a", now.get()), lease("b", now.get()), lease("c", now.get())));
+
+		Map<String, Integer> shares = new HashMap<>();
+		for (String key : keys()) {
+			shares.merge(coordinator.ownerOf(key), 1, Integer::sum);
+		}
+
+		assertEquals(Set.of("a", "b", "c"), shares.keySet());
+		for (int share : shares.values()) {
+			assertTrue(share > KEYS / 6, "uneven split: " + shares);
+		}
+	}
+
+	@Test
+	void expiredMemberOnlyMovesItsOwnKeys() {
+		ShardCoordinator coordinator = coordinator("a");
+		long renewed = now.get();
+		coordinator.updateMembership(List.of(lease("a", renewed), lease("b", renewed), lease("c", renewed)));
+
+		Map<String, String> before = new HashMap<>();
+		for (String key : keys()) {
+			before.put(key, coordinator.ownerOf(key));
+		}
+
+		// c stops renewing; a and b keep going
+		now.addAndGet(LEASE_SECONDS * 1000L + 1);
+		assertTrue(coordinator.updateMembership(List.of(lease("a", now.get()), lease("b", now.get()), lease("c", renewed))));
+		assertEquals(List.of("a", "b"), coordinator.getMembers());
+
+		for (String key : keys()) {
+			String owner = coordinator.ownerOf(key);
+			if (before.get(key).equals("c")) {
+				assertNotEquals("c", owner);
+			} else {
+				assertEquals(before.get(key), owner, key + " moved although its owner is still live");
+			}
+		}
+	}
+
+	@Test
+	void gainedKeysWaitForTheSettlePeriod() {
+		ShardCoordinator coordinator = coordinator("a");
+		long renewed = now.get();
+		coordinator.updateMembership(List.of(lease("a", renewed), lease("b", renewed)));
+		settle();
+		coordinator.recordRenewal();
+
+		Set<String> ownedBefore = new HashSet<>();
+		for (String key : keys()) {
+			if (coordinator.owns(key)) ownedBefore.add(key);
+		}
+		assertFalse(ownedBefore.isEmpty());
+
+		// b's lease expires - its keys hash to a, but b may still be acting on them
+		now.addAndGet(LEASE_SECONDS * 1000L + 1);
+		coordinator.recordRenewal();
+		coordinator.updateMembership(List.of(lease("a", now.get()), lease("b", renewed)));
+
+		for (String key : keys()) {
+			assertEquals("a", coordinator.ownerOf(key));
+			if (ownedBefore.contains(key)) {
+				assertTrue(coordinator.owns(key), key + " was a's all along");
+			} else {
+				assertFalse(coordinator.owns(key), key + " taken over before the handoff settled");
+				assertTrue(coordinator.ownedByOther(key));
+			}
+		}
+
+		settle();
+		for (String key : keys()) {
+			assertTrue(coordinator.owns(key));
+			assertFalse(coordinator.ownedByOther(key));
+		}
+	}
+
+	@Test
+	void lostKeysAreReleasedImmediately() {
+		ShardCoordinator coordinator = coordinator("a");
+		coordinator.updateMembership(List.of(lease("a", now.get())));
+		settle();
+		coordinator.recordRenewal();
+		for (String key : keys()) {
+			assertTrue(coordinator.owns(key));
+		}
+
+		coordinator.updateMembership(List.of(lease("a", now.get()), lease("b", now.get())));
+		for (String key : keys()) {
+			boolean movedToB = "b".equals(coordinator.ownerOf(key));
+			assertEquals(!movedToB, coordinator.owns(key));
+			assertEquals(movedToB, coordinator.ownedByOther(key));
+		}
+	}
+
+	@Test
+	void ownLeaseExpiryReleasesEverythingButKeepsWriting() {
+		ShardCoordinator coordinator = coordinator("a");
+		coordinator.updateMembership(List.of(lease("a", now.get()), lease("b", now.get())));
+		settle();
+		coordinator.recordRenewal();
+
+		// No renewal for a full lease duration
+		now.addAndGet(LEASE_SECONDS * 1000L);
+		coordinator.checkHealth();
+
+		for (String key : keys()) {
+			assertFalse(coordinator.owns(key));
+			// Still a's on the ring - nobody else has taken it over
+			if ("a".equals(coordinator.ownerOf(key))) assertFalse(coordinator.ownedByOther(key));
+		}
+
+		coordinator.recordRenewal();
+		coordinator.checkHealth();
+		int owned = 0;
+		for (String key : keys()) {
+			if (coordinator.owns(key)) owned++;
+		}
+		assertTrue(owned > 0);
+	}
+}
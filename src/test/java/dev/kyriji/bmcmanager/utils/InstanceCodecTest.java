@@ -0,0 +1,131 @@
+package dev.kyriji.bmcmanager.utils;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParser;
+import com.google.gson.reflect.TypeToken;
+import dev.kyriji.bigminecraftapi.enums.InstanceState;
+import dev.kyriji.bigminecraftapi.objects.Instance;
+import dev.kyriji.bigminecraftapi.objects.MinecraftInstance;
+import org.junit.jupiter.api.Test;
+
+import java.lang.reflect.Type;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * InstanceCodec has to stay byte-compatible with the Gson output the API and older managers read and write.
+ */
+class InstanceCodecTest {
+	private static final Gson GSON = new Gson();
+	private static final Type PLAYERS_TYPE = new TypeToken<Map<UUID, String>>() {}.getType();
+
+	// Everything Gson escapes by default: html-safe characters, quotes, backslash, the short escapes,
+	// the other C0 controls and the two JS line separators.
+	private static final String AWKWARD = "a<b>c&d=e'f\"g\\h\n\r\t\b\f\u0000\u0001\u001f\u007f\u2028\u2029é";
+
+	@Test
+	void readsPlayersWrittenByGson() {
+		Map<UUID, String> players = new HashMap<>();
+		players.put(UUID.randomUUID(), "Steve");
+		players.put(UUID.randomUUID(), AWKWARD);
+		players.put(UUID.randomUUID(), "");
+		players.put(UUID.randomUUID(), "\uD83D\uDE00 emoji");
+
+		assertEquals(players, InstanceCodec.readPlayers(GSON.toJson(players)));
+		assertEquals(Map.of(), InstanceCodec.readPlayers(GSON.toJson(new HashMap<UUID, String>())));
+	}
+
+	@Test
+	void readsWhitespaceAndNullNames() {
+		UUID id = UUID.randomUUID();
+		Map<UUID, String> players = InstanceCodec.readPlayers(" {\n\t\"" + id + "\" : null } ");
+
+		assertTrue(players.containsKey(id));
+		assertNull(players.get(id));
+		assertEquals(Map.of(), InstanceCodec.readPlayers(null));
+		assertEquals(Map.of(), InstanceCodec.readPlayers(""));
+	}
+
+	@Test
+	void writesInstancesLikeGson() {
+		Instance instance = new Instance("uid" + AWKWARD, "name" + AWKWARD, "pod" + AWKWARD, "10.0.0.1", "lobby" + AWKWARD);
+		instance.setState(InstanceState.RUNNING);
+
+		assertSameFields(instance);
+	}
+
+	@Test
+	void writesMinecraftInstancesLikeGson() {
+		MinecraftInstance instance = new MinecraftInstance("uid", AWKWARD, "pod", "10.0.0.2", null);
+		instance.setState(InstanceState.BLOCKED);
+		instance.addPlayer(UUID.randomUUID(), AWKWARD);
+
+		assertSameFields(instance);
+
+		// Reading back what the codec wrote must give the same roster.
+		String players = JsonParser.parseString(InstanceCodec.toJson(instance)).getAsJsonObject().get("players").toString();
+		assertEquals(instance.getPlayers(), InstanceCodec.readPlayers(players));
+	}
+
+	@Test
+	void writesEmptyRosterLikeGson() {
+		MinecraftInstance instance = new MinecraftInstance("uid", "name", "pod", "10.0.0.3", "lobby");
+		instance.setPlayers(new HashMap<>());
+
+		assertSameFields(instance);
+	}
+
+	@Test
+	void rejectsMalformedPlayers() {
+		String id = UUID.randomUUID().toString();
+		List<String> malformed = List.of(
+			"{",
+			"{\"",
+			"{\"" + id,
+			"{\"" + id + "\"",
+			"{\"" + id + "\":",
+			"{\"" + id + "\":\"Steve",
+			"{\"" + id + "\":\"Steve\"",
+			"{\"" + id + "\":\"Steve\",}",
+			"{\"" + id + "\":\"\\u12\"}",
+			"{\"" + id + "\":\"\\u12zz\"}",
+			"{\"" + id + "\":\"Steve\"} trailing",
+			"{\"" + id + "\" \"Steve\"}",
+			"{\"" + id + "\":Steve}",
+			"{\"not-a-uuid\":\"Steve\"}",
+			"[]",
+			"null"
+		);
+
+		for (String json : malformed) {
+			assertThrows(IllegalArgumentException.class, () -> InstanceCodec.readPlayers(json), json);
+		}
+	}
+
+	// Key order differs (Gson writes subclass fields first), so compare the parsed objects and then each
+	// field's raw text, which is where an escaping difference would show up.
+	private void assertSameFields(Instance instance) {
+		String codec = InstanceCodec.toJson(instance);
+		String gson = GSON.toJson(instance);
+
+		assertEquals(JsonParser.parseString(gson), JsonParser.parseString(codec));
+		JsonParser.parseString(gson).getAsJsonObject().entrySet().forEach(field -> {
+			String raw = GSON.toJson(field.getKey()) + ":" + rawValue(instance, field.getKey(), field.getValue().toString());
+			assertTrue(codec.contains(raw), "missing " + raw + " in " + codec);
+		});
+	}
+
+	private String rawValue(Instance instance, String field, String parsed) {
+		return switch (field) {
+			case "uid" -> GSON.toJson(instance.getUid());
+			case "name" -> GSON.toJson(instance.getName());
+			case "podName" -> GSON.toJson(instance.getPodName());
+			case "ip" -> GSON.toJson(instance.getIp());
+			case "deployment" -> GSON.toJson(instance.getDeployment());
+			case "state" -> GSON.toJson(instance.getState());
+			case "players" -> GSON.toJson(((MinecraftInstance) instance).getPlayers(), PLAYERS_TYPE);
+			default -> parsed;
+		};
+	}
+}